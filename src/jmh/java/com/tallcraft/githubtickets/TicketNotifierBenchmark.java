@@ -0,0 +1,95 @@
+package com.tallcraft.githubtickets;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recipient selection and sending of ticket notifications, with one in ten players being staff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketNotifierBenchmark {
+    @Param({"10", "100", "1000"})
+    public int playerCount;
+
+    private final TicketNotifier ticketNotifier = TicketNotifier.getInstance();
+    private final BaseComponent[] message = TextComponent.fromLegacyText("New comment for Ticket #42");
+
+    private UUID authorUUID;
+    private UUID staffUUID;
+
+    // Messages "sent" to the fake players
+    private long sent;
+
+    @Setup
+    public void setup() {
+        RecipientRegistry registry = RecipientRegistry.getInstance();
+        List<Player> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            players.add(fakePlayer(UUID.randomUUID(), i % 10 == 0));
+        }
+        players.forEach(registry::refresh);
+        staffUUID = players.get(0).getUniqueId();
+        authorUUID = players.get(players.size() - 1).getUniqueId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (sent == 0) {
+            throw new IllegalStateException("No notifications were sent");
+        }
+    }
+
+    /**
+     * Staff and author are notified, the staff member who commented is skipped
+     */
+    @Benchmark
+    public void notifyStaffAndAuthor() {
+        ticketNotifier.notifyPlayers(true, true, authorUUID, staffUUID, message);
+    }
+
+    @Benchmark
+    public void notifyAuthor() {
+        ticketNotifier.notifyPlayers(false, true, authorUUID, null, message);
+    }
+
+    private Player fakePlayer(UUID uuid, boolean isStaff) {
+        Player.Spigot spigot = new Player.Spigot() {
+            @Override
+            public void sendMessage(BaseComponent... components) {
+                sent++;
+            }
+        };
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getUniqueId":
+                            return uuid;
+                        case "hasPermission":
+                            return isStaff && "githubtickets.notify.all".equals(args[0]);
+                        case "spigot":
+                            return spigot;
+                        case "isOnline":
+                            return true;
+                        case "hashCode":
+                            return uuid.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,63 @@
+package com.tallcraft.githubtickets.github;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tallcraft.githubtickets.ticket.Ticket;
+import org.kohsuke.github.GHIssue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of GitHub issues to tickets, for library issue objects and raw REST JSON
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssueConverterBenchmark {
+    private final IssueConverter issueConverter = IssueConverter.getInstance();
+
+    private GHIssue issue;
+    private JsonNode issueJson;
+
+    @Setup
+    public void setup() throws Exception {
+        // Body as written by the plugin, with a multi line ticket text
+        String body = "Player: Steve\n"
+                + "UUID: " + UUID.randomUUID() + "\n"
+                + "Server: survival\n"
+                + "World: world_nether\n"
+                + "Location: -1204.5, 64.0, 3389.25\n\n"
+                + "Someone griefed my house near the nether portal. The chests are empty and half of the roof\n"
+                + "is gone. I was offline between 8pm and 10am, please check the logs. Thanks!";
+        String json = "{\"number\": 4711, \"state\": \"open\", \"title\": \"Steve: Someone griefed my house\","
+                + " \"created_at\": \"2020-06-01T12:00:00Z\", \"updated_at\": \"2020-06-02T08:30:00Z\","
+                + " \"comments\": 2, \"body\": " + new ObjectMapper().writeValueAsString(body) + "}";
+
+        issueJson = ApiClient.getMapper().readTree(json);
+
+        // Same field based mapping the GitHub library uses for its response objects
+        ObjectMapper libraryMapper = new ObjectMapper()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        issue = libraryMapper.readValue(json, GHIssue.class);
+    }
+
+    @Benchmark
+    public Ticket issueToTicket() {
+        return issueConverter.issueToTicket(issue, false);
+    }
+
+    @Benchmark
+    public Ticket jsonToTicket() {
+        return issueConverter.jsonToTicket(issueJson);
+    }
+}
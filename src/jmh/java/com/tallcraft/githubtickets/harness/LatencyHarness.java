@@ -0,0 +1,259 @@
+package com.tallcraft.githubtickets.harness;
+
+import com.tallcraft.githubtickets.Metrics;
+import com.tallcraft.githubtickets.github.GitHubController;
+import com.tallcraft.githubtickets.ticket.Location;
+import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketComment;
+import com.tallcraft.githubtickets.ticket.TicketController;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end latency harness. Runs a mix of ticket operations from concurrent "players" against
+ * {@link MockGitHubServer}, through the real controllers, HTTP client, cache and request scheduler,
+ * and reports throughput and latency percentiles per operation.
+ * <br>
+ * Options are passed as key=value arguments, e.g. threads=16 operations=2000 latency=80 graphql=false.
+ * Run with: mvn -P jmh test-compile exec:exec@harness -Dharness.args="threads=16 latency=80"
+ */
+public class LatencyHarness {
+    private static final String owner = "harness";
+    private static final String repository = "tickets";
+
+    private final Map<String, String> options;
+    private final MockGitHubServer server = new MockGitHubServer(owner, repository);
+    private final GitHubController githubController = GitHubController.getInstance();
+    private final TicketController ticketController = TicketController.getInstance();
+
+    private final Map<String, Integer> mix = new LinkedHashMap<>();
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+    private final List<Integer> ticketIds = new CopyOnWriteArrayList<>();
+
+    private LatencyHarness(Map<String, String> options) {
+        this.options = options;
+        for (String entry : option("mix", "create=1,reply=2,list=3,show=4,listComments=0").split(",")) {
+            String[] parts = entry.split("=");
+            int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) {
+                mix.put(parts[0], weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                System.err.println("Invalid option " + arg + ", expected key=value");
+                System.exit(2);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        int status = 0;
+        LatencyHarness harness = new LatencyHarness(options);
+        try {
+            harness.run();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            status = 1;
+        } finally {
+            harness.server.stop();
+        }
+        // Controllers keep non daemon threads around
+        System.exit(status);
+    }
+
+    private void run() throws Exception {
+        int threads = intOption("threads", 8);
+        int operations = intOption("operations", 1000);
+        int warmup = intOption("warmup", 100);
+
+        server.setPageSize(intOption("page-size", 30));
+        server.setRateLimit(intOption("rate-limit", 1000000));
+        seed(intOption("tickets", 200), intOption("comments", 5));
+
+        // Latency and errors only apply once seeding is done
+        server.setLatency(intOption("latency", 50), intOption("jitter", 20));
+        server.setErrorRate(Double.parseDouble(option("error-rate", "0")));
+        String endpoint = server.start();
+
+        File cacheDirectory = Files.createTempDirectory("githubtickets-harness").toFile();
+        cacheDirectory.deleteOnExit();
+        githubController.setEndpoint(endpoint);
+        githubController.setOauth("harness-token");
+        githubController.setCache(cacheDirectory, 10 * 1024 * 1024);
+        githubController.setUseGraphQL(Boolean.parseBoolean(option("graphql", "true")));
+        // Pacing is a production safeguard, measure the plugin and not the token bucket
+        githubController.getScheduler().setRate(threads * 10, 10000);
+        githubController.connect(owner, repository);
+        ticketController.setServerName("harness");
+        ticketController.setCacheMaxAge(intOption("cache-max-age", 30) * 1000L);
+
+        System.out.printf("Mock GitHub at %s: %d tickets, %d+-%dms latency, %s%n", endpoint,
+                server.getIssueCount(), intOption("latency", 50), intOption("jitter", 20),
+                Boolean.parseBoolean(option("graphql", "true")) ? "GraphQL" : "REST only");
+        System.out.printf("%d threads, %d operations after %d warmup, mix %s%n%n", threads, operations, warmup, mix);
+
+        execute(threads, warmup);
+        latencies.clear();
+        errors.clear();
+        server.resetRequestCounts();
+        Metrics.getInstance().reset();
+
+        long start = System.nanoTime();
+        execute(threads, operations);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        report(seconds);
+    }
+
+    /**
+     * Seed mock repository with tickets in the format written by the plugin
+     */
+    private void seed(int tickets, int comments) {
+        Random random = new Random(42);
+        for (int i = 0; i < tickets; i++) {
+            String playerName = "Player" + random.nextInt(50);
+            String body = "Player: " + playerName + "\n"
+                    + "UUID: " + new UUID(0, playerName.hashCode()) + "\n"
+                    + "Server: harness\n"
+                    + "World: world\n"
+                    + "Location: " + (random.nextInt(2000) - 1000) + ".0, 64.0, "
+                    + (random.nextInt(2000) - 1000) + ".0"
+                    + "\n\nSeeded ticket number " + i + ", with a sentence or two of text.";
+            List<String> commentBodies = new ArrayList<>();
+            for (int c = 0; c < comments; c++) {
+                commentBodies.add("Name: Staff\nUUID: null\n\nReply number " + c + " to ticket " + i);
+            }
+            ticketIds.add(server.addIssue(playerName + ": Seeded ticket " + i, body, i % 4 != 0, commentBodies));
+        }
+    }
+
+    /**
+     * Run operations drawn from the mix on a fixed number of threads and wait for completion
+     */
+    private void execute(int threads, int operations) throws InterruptedException {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(operations);
+        for (int i = 0; i < operations; i++) {
+            executor.execute(() -> {
+                try {
+                    int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+                    for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+                        pick -= entry.getValue();
+                        if (pick < 0) {
+                            runOperation(entry.getKey());
+                            break;
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+    }
+
+    private void runOperation(String operation) {
+        long start = System.nanoTime();
+        try {
+            switch (operation) {
+                case "create":
+                    create();
+                    break;
+                case "reply":
+                    reply();
+                    break;
+                case "list":
+                    ticketController.getTicketPage(true, null, 1, 10);
+                    break;
+                case "show":
+                    ticketController.getCommentWindow(randomTicketId(), null, 10);
+                    break;
+                case "listComments":
+                    ticketController.getTickets(true, true, true, null, true);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        } catch (IOException | RuntimeException ex) {
+            errors.computeIfAbsent(operation, key -> new AtomicInteger()).incrementAndGet();
+        }
+        latencies.computeIfAbsent(operation, key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(System.nanoTime() - start);
+    }
+
+    /**
+     * Creating and replying go to GitHub directly, the ticket controller notifies players on the server
+     * which requires a running Bukkit server
+     */
+    private void create() throws IOException {
+        UUID uuid = UUID.randomUUID();
+        Ticket ticket = new Ticket(new Date(), uuid, "Harness", "harness", "world", Location.fromString("0.0, 64.0, 0.0"),
+                "Ticket created by the latency harness");
+        ticketIds.add(githubController.createTicket(ticket).getId());
+    }
+
+    private void reply() throws IOException {
+        githubController.addTicketComment(randomTicketId(),
+                new TicketComment(new Date(), UUID.randomUUID(), "Harness", "Reply from the latency harness"));
+    }
+
+    private int randomTicketId() {
+        return ticketIds.get(ThreadLocalRandom.current().nextInt(ticketIds.size()));
+    }
+
+    private void report(double seconds) {
+        long total = latencies.values().stream().mapToLong(List::size).sum();
+        System.out.printf("%-14s %8s %7s %9s %9s %9s %9s%n", "operation", "count", "errors", "ops/s",
+                "p50 ms", "p99 ms", "max ms");
+        for (String operation : new TreeSet<>(latencies.keySet())) {
+            List<Long> samples = new ArrayList<>(latencies.get(operation));
+            Collections.sort(samples);
+            AtomicInteger failed = errors.get(operation);
+            System.out.printf("%-14s %8d %7d %9.1f %9.1f %9.1f %9.1f%n", operation, samples.size(),
+                    failed == null ? 0 : failed.get(), samples.size() / seconds, percentile(samples, 0.5),
+                    percentile(samples, 0.99), samples.get(samples.size() - 1) / 1e6);
+        }
+        System.out.printf("%-14s %8d %7s %9.1f%n%n", "total", total, "", total / seconds);
+
+        System.out.println("Requests to mock GitHub:");
+        server.getRequestCounts().forEach((route, count) -> System.out.printf("  %-24s %d%n", route, count));
+        System.out.println();
+
+        System.out.println("Plugin metrics:");
+        Metrics.getInstance().getOperations().forEach((name, stats) -> {
+            if (name.startsWith("github.") || name.startsWith("convert.")) {
+                System.out.printf("  %-22s %s%n", name, stats);
+            }
+        });
+        System.out.printf("  HTTP cache: %s%n", githubController.getCacheStats());
+        System.out.printf("  Ticket store hit rate: %.1f%%%n", Metrics.getInstance().getTicketStoreHitRate() * 100);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(sorted.size() * quantile) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(option(key, Integer.toString(defaultValue)));
+    }
+}
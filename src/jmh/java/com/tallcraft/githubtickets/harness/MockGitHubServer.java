@@ -0,0 +1,636 @@
+package com.tallcraft.githubtickets.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory stand-in for the parts of the GitHub REST and GraphQL API used by the plugin.
+ * <br>
+ * Serves a single repository with issues and comments. Every request is delayed by a configurable latency,
+ * fails with a configurable error rate and carries rate limit headers. Responses have ETags,
+ * conditional requests for unchanged resources are answered with 304 and don't count against the rate limit.
+ */
+public class MockGitHubServer {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern issuePath = Pattern.compile("/repos/([^/]+)/([^/]+)/issues/(\\d+)(/comments)?");
+    private static final Pattern connectionArgs =
+            Pattern.compile("(issues|comments)\\((first|last): (\\d+|\\$\\w+)(?:, (after|before): \\$(\\w+))?");
+
+    private final String owner;
+    private final String name;
+
+    // Request handling
+    private volatile long latencyMillis = 0;
+    private volatile long jitterMillis = 0;
+    private volatile double errorRate = 0;
+    private volatile int pageSize = 30;
+
+    // Rate limit per resource (core, graphql), reset an hour after start
+    private volatile int rateLimit = 5000;
+    private final Map<String, AtomicLong> rateLimitUsed = new ConcurrentHashMap<>();
+    private final long rateLimitReset = Instant.now().getEpochSecond() + 3600;
+
+    // Repository contents, guarded by this
+    private final NavigableMap<Integer, Issue> issues = new TreeMap<>();
+    private int nextNumber = 1;
+
+    // Requests by route, e.g. "GET issue comments"
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+
+    public MockGitHubServer(String owner, String name) {
+        this.owner = owner;
+        this.name = name;
+    }
+
+    /**
+     * @param latencyMillis fixed delay of every request
+     * @param jitterMillis  random additional delay of up to this many milliseconds
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * @param errorRate share of requests answered with 502 Bad Gateway, between 0 and 1
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param pageSize items per page of REST listings which don't set per_page
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param rateLimit requests per resource until the rate limit is exceeded
+     */
+    public void setRateLimit(int rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Add issue in the format the plugin writes
+     *
+     * @param title    issue title
+     * @param body     issue body
+     * @param open     issue state
+     * @param comments comment bodies
+     * @return issue number
+     */
+    public synchronized int addIssue(String title, String body, boolean open, List<String> comments) {
+        Issue issue = new Issue(nextNumber++, title, body);
+        issue.open = open;
+        for (String comment : comments) {
+            issue.comments.add(new Comment(comment));
+        }
+        issues.put(issue.number, issue);
+        return issue.number;
+    }
+
+    public synchronized int getIssueCount() {
+        return issues.size();
+    }
+
+    /**
+     * @return number of requests by route, sorted by route
+     */
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requestCounts.forEach((route, count) -> counts.put(route, count.get()));
+        return counts;
+    }
+
+    public void resetRequestCounts() {
+        requestCounts.clear();
+    }
+
+    /**
+     * Start listening on a free local port
+     *
+     * @return API base url, e.g. http://127.0.0.1:12345
+     * @throws IOException if no port can be bound
+     */
+    public String start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "MockGitHub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+        return getEndpoint();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            // HttpURLConnection can't send PATCH, the GitHub library falls back to an override header
+            String override = exchange.getRequestHeaders().getFirst("X-HTTP-Method-Override");
+            if (override != null) {
+                method = override;
+            }
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            byte[] requestBody = readBody(exchange.getRequestBody());
+            String resource = "/graphql".equals(path) ? "graphql" : "core";
+
+            delay();
+
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                count(method + " error");
+                respond(exchange, 502, resource, error("Server Error"), null);
+                return;
+            }
+            if (rateLimitUsed.computeIfAbsent(resource, key -> new AtomicLong()).get() >= rateLimit) {
+                count(method + " rate limited");
+                respond(exchange, 403, resource, error("API rate limit exceeded"), null);
+                return;
+            }
+
+            Response response = route(method, path, query, requestBody);
+            count(method + " " + response.route);
+            respond(exchange, response.status, resource, response.body, response.link);
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            respond(exchange, 500, "core", error(ex.toString()), null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response route(String method, String path, Map<String, String> query, byte[] body) throws IOException {
+        String repoPath = "/repos/" + owner + "/" + name;
+        if ("GET".equals(method) && "/user".equals(path)) {
+            ObjectNode user = mapper.createObjectNode();
+            user.put("login", "harness");
+            user.put("id", 1);
+            user.put("type", "User");
+            return new Response("user", 200, user);
+        }
+        if ("GET".equals(method) && "/rate_limit".equals(path)) {
+            return new Response("rate limit", 200, rateLimitJson());
+        }
+        if ("GET".equals(method) && repoPath.equals(path)) {
+            return new Response("repository", 200, repositoryJson());
+        }
+        if ("POST".equals(method) && "/graphql".equals(path)) {
+            return graphQL(mapper.readTree(body));
+        }
+        if ((repoPath + "/issues").equals(path)) {
+            if ("GET".equals(method)) {
+                return listIssues(query);
+            }
+            if ("POST".equals(method)) {
+                JsonNode request = mapper.readTree(body);
+                Issue issue;
+                synchronized (this) {
+                    issue = new Issue(nextNumber++, request.path("title").asText(), request.path("body").asText());
+                    issues.put(issue.number, issue);
+                }
+                return new Response("create issue", 201, issueJson(issue));
+            }
+        }
+        Matcher matcher = issuePath.matcher(path);
+        if (matcher.matches() && owner.equals(matcher.group(1)) && name.equals(matcher.group(2))) {
+            int number = Integer.parseInt(matcher.group(3));
+            boolean comments = matcher.group(4) != null;
+            synchronized (this) {
+                Issue issue = issues.get(number);
+                if (issue == null) {
+                    return new Response(comments ? "issue comments" : "issue", 404, error("Not Found"));
+                }
+                if (comments && "GET".equals(method)) {
+                    return page("issue comments", issue.comments, query, this::commentJson,
+                            repoPath + "/issues/" + number + "/comments");
+                }
+                if (comments && "POST".equals(method)) {
+                    Comment comment = new Comment(mapper.readTree(body).path("body").asText());
+                    issue.comments.add(comment);
+                    issue.updatedAt = comment.createdAt;
+                    return new Response("create comment", 201, commentJson(comment));
+                }
+                if (!comments && "GET".equals(method)) {
+                    return new Response("issue", 200, issueJson(issue));
+                }
+                if (!comments && "PATCH".equals(method)) {
+                    JsonNode request = mapper.readTree(body);
+                    if (request.has("state")) {
+                        issue.open = "open".equals(request.path("state").asText());
+                    }
+                    issue.updatedAt = now();
+                    return new Response("edit issue", 200, issueJson(issue));
+                }
+            }
+        }
+        return new Response("unknown " + path, 404, error("Not Found"));
+    }
+
+    private synchronized Response listIssues(Map<String, String> query) {
+        String state = query.getOrDefault("state", "open");
+        boolean byUpdate = "updated".equals(query.get("sort"));
+        boolean ascending = "asc".equals(query.get("direction"));
+        Instant since = query.containsKey("since") ? Instant.parse(query.get("since")) : null;
+
+        List<Issue> matching = new ArrayList<>();
+        for (Issue issue : issues.values()) {
+            if (("open".equals(state) && !issue.open) || ("closed".equals(state) && issue.open)) {
+                continue;
+            }
+            if (since != null && issue.updatedAt.isBefore(since)) {
+                continue;
+            }
+            matching.add(issue);
+        }
+        Comparator<Issue> order = byUpdate ? Comparator.comparing(issue -> issue.updatedAt)
+                : Comparator.comparingInt(issue -> issue.number);
+        matching.sort(ascending ? order : order.reversed());
+        return page("issues", matching, query, this::issueJson, "/repos/" + owner + "/" + name + "/issues");
+    }
+
+    /**
+     * Answer one page of a REST listing with a Link header to the next page
+     */
+    private <T> Response page(String route, List<T> items, Map<String, String> query,
+                              java.util.function.Function<T, JsonNode> toJson, String path) {
+        int perPage = Math.max(1, Math.min(100, Integer.parseInt(query.getOrDefault("per_page",
+                Integer.toString(pageSize)))));
+        int page = Math.max(1, Integer.parseInt(query.getOrDefault("page", "1")));
+        ArrayNode result = mapper.createArrayNode();
+        int from = Math.min(items.size(), (page - 1) * perPage);
+        int to = Math.min(items.size(), from + perPage);
+        for (T item : items.subList(from, to)) {
+            result.add(toJson.apply(item));
+        }
+        String link = null;
+        if (to < items.size()) {
+            Map<String, String> next = new LinkedHashMap<>(query);
+            next.put("per_page", Integer.toString(perPage));
+            next.put("page", Integer.toString(page + 1));
+            StringBuilder url = new StringBuilder(getEndpoint()).append(path).append('?');
+            next.forEach((key, value) -> url.append(key).append('=').append(value).append('&'));
+            url.setLength(url.length() - 1);
+            link = "<" + url + ">; rel=\"next\"";
+        }
+        Response response = new Response(route, 200, result);
+        response.link = link;
+        return response;
+    }
+
+    /**
+     * Answer the issue list, issue and comment queries sent by the plugin
+     */
+    private synchronized Response graphQL(JsonNode request) {
+        String query = request.path("query").asText();
+        JsonNode variables = request.path("variables");
+        ObjectNode data = mapper.createObjectNode();
+        ObjectNode repository = data.putObject("repository");
+
+        Matcher issuesArgs = find(query, "issues");
+        if (issuesArgs != null) {
+            Set<Boolean> states = new HashSet<>();
+            variables.path("states").forEach(state -> states.add("OPEN".equals(state.asText())));
+            List<Issue> matching = new ArrayList<>();
+            for (Issue issue : issues.descendingMap().values()) {
+                if (states.isEmpty() || states.contains(issue.open)) {
+                    matching.add(issue);
+                }
+            }
+            Matcher commentArgs = find(query, "comments");
+            repository.set("issues", connection(matching, issuesArgs, variables, true,
+                    issue -> graphQLIssueJson(issue, commentArgs, variables, false)));
+            return new Response("graphql issues", 200, wrapData(data, null));
+        }
+
+        Issue issue = issues.get(variables.path("number").asInt());
+        if (issue == null) {
+            repository.putNull("issue");
+            ObjectNode notFound = mapper.createObjectNode();
+            notFound.put("type", "NOT_FOUND");
+            notFound.put("message", "Could not resolve to an Issue");
+            return new Response("graphql issue", 200, wrapData(data, notFound));
+        }
+        Matcher commentArgs = find(query, "comments");
+        boolean commentsOnly = !query.contains("createdAt updatedAt");
+        ObjectNode node = commentsOnly ? mapper.createObjectNode() : graphQLIssueJson(issue, commentArgs, variables, true);
+        if (commentsOnly) {
+            node.set("comments", connection(issue.comments, commentArgs, variables, true, this::graphQLCommentJson));
+        }
+        repository.set("issue", node);
+        return new Response(commentsOnly ? "graphql comments" : "graphql issue", 200, wrapData(data, null));
+    }
+
+    /**
+     * @param commentCursor apply comment cursors, only for single issues since cursors of nested connections
+     *                      in issue lists apply to the outer query
+     */
+    private ObjectNode graphQLIssueJson(Issue issue, Matcher commentArgs, JsonNode variables,
+                                        boolean commentCursor) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("number", issue.number);
+        node.put("state", issue.open ? "OPEN" : "CLOSED");
+        node.put("body", issue.body);
+        node.put("createdAt", issue.createdAt.toString());
+        node.put("updatedAt", issue.updatedAt.toString());
+        if (commentArgs != null) {
+            node.set("comments", connection(issue.comments, commentArgs, variables, commentCursor,
+                    this::graphQLCommentJson));
+        }
+        return node;
+    }
+
+    private ObjectNode graphQLCommentJson(Comment comment) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("body", comment.body);
+        node.put("createdAt", comment.createdAt.toString());
+        ObjectNode author = node.putObject("author");
+        author.put("login", "staff");
+        author.putNull("name");
+        return node;
+    }
+
+    /**
+     * Build GraphQL connection for first/after or last/before pagination, cursors are item indexes
+     */
+    private <T> ObjectNode connection(List<T> items, Matcher args, JsonNode variables, boolean useCursor,
+                                      java.util.function.Function<T, JsonNode> toJson) {
+        boolean last = "last".equals(args.group(2));
+        String countArg = args.group(3);
+        int count = countArg.startsWith("$") ? variables.path(countArg.substring(1)).asInt()
+                : Integer.parseInt(countArg);
+        String cursor = !useCursor || args.group(5) == null ? null : variables.path(args.group(5)).asText(null);
+
+        int from;
+        int to;
+        if (last) {
+            to = cursor == null ? items.size() : Math.min(items.size(), Integer.parseInt(cursor));
+            from = Math.max(0, to - count);
+        } else {
+            from = cursor == null ? 0 : Math.min(items.size(), Integer.parseInt(cursor) + 1);
+            to = Math.min(items.size(), from + count);
+        }
+
+        ObjectNode connection = mapper.createObjectNode();
+        connection.put("totalCount", items.size());
+        ObjectNode pageInfo = connection.putObject("pageInfo");
+        pageInfo.put("hasNextPage", to < items.size());
+        pageInfo.put("endCursor", to > from ? Integer.toString(to - 1) : null);
+        pageInfo.put("hasPreviousPage", from > 0);
+        pageInfo.put("startCursor", to > from ? Integer.toString(from) : null);
+        ArrayNode nodes = connection.putArray("nodes");
+        for (T item : items.subList(from, to)) {
+            nodes.add(toJson.apply(item));
+        }
+        return connection;
+    }
+
+    private static Matcher find(String query, String connection) {
+        Matcher matcher = connectionArgs.matcher(query);
+        while (matcher.find()) {
+            if (connection.equals(matcher.group(1))) {
+                return matcher;
+            }
+        }
+        return null;
+    }
+
+    private static ObjectNode wrapData(ObjectNode data, ObjectNode error) {
+        ObjectNode result = mapper.createObjectNode();
+        result.set("data", data);
+        if (error != null) {
+            result.putArray("errors").add(error);
+        }
+        return result;
+    }
+
+    private ObjectNode repositoryJson() {
+        ObjectNode repository = mapper.createObjectNode();
+        repository.put("id", 1);
+        repository.put("name", name);
+        repository.put("full_name", owner + "/" + name);
+        repository.put("private", true);
+        repository.put("has_issues", true);
+        repository.put("url", getEndpoint() + "/repos/" + owner + "/" + name);
+        repository.put("html_url", "https://github.com/" + owner + "/" + name);
+        ObjectNode ownerNode = repository.putObject("owner");
+        ownerNode.put("login", owner);
+        ownerNode.put("id", 1);
+        ownerNode.put("type", "User");
+        return repository;
+    }
+
+    private ObjectNode issueJson(Issue issue) {
+        ObjectNode node = mapper.createObjectNode();
+        String url = getEndpoint() + "/repos/" + owner + "/" + name + "/issues/" + issue.number;
+        node.put("id", issue.number);
+        node.put("number", issue.number);
+        node.put("url", url);
+        node.put("html_url", "https://github.com/" + owner + "/" + name + "/issues/" + issue.number);
+        node.put("comments_url", url + "/comments");
+        node.put("title", issue.title);
+        node.put("body", issue.body);
+        node.put("state", issue.open ? "open" : "closed");
+        node.put("comments", issue.comments.size());
+        node.put("created_at", issue.createdAt.toString());
+        node.put("updated_at", issue.updatedAt.toString());
+        node.putArray("labels");
+        node.putArray("assignees");
+        node.putObject("user").put("login", "harness");
+        return node;
+    }
+
+    private ObjectNode commentJson(Comment comment) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("id", comment.id);
+        node.put("body", comment.body);
+        node.put("created_at", comment.createdAt.toString());
+        node.put("updated_at", comment.createdAt.toString());
+        node.putObject("user").put("login", "staff");
+        return node;
+    }
+
+    private ObjectNode rateLimitJson() {
+        ObjectNode result = mapper.createObjectNode();
+        ObjectNode resources = result.putObject("resources");
+        for (String resource : new String[]{"core", "graphql", "search"}) {
+            ObjectNode node = resources.putObject(resource);
+            node.put("limit", rateLimit);
+            node.put("remaining", getRemaining(resource));
+            node.put("reset", rateLimitReset);
+        }
+        result.set("rate", resources.get("core"));
+        return result;
+    }
+
+    /**
+     * Current time with the second precision of GitHub timestamps
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static ObjectNode error(String message) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("message", message);
+        return node;
+    }
+
+    private long getRemaining(String resource) {
+        AtomicLong used = rateLimitUsed.get(resource);
+        return Math.max(0, rateLimit - (used == null ? 0 : used.get()));
+    }
+
+    private void count(String route) {
+        requestCounts.computeIfAbsent(route, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void delay() {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Send JSON response with rate limit headers and an ETag, answering matching conditional requests with 304
+     */
+    private void respond(HttpExchange exchange, int status, String resource, JsonNode body, String link)
+            throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        String etag = "\"" + Integer.toHexString(Arrays.hashCode(bytes)) + "\"";
+        boolean notModified = status == 200 && "GET".equals(exchange.getRequestMethod())
+                && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"));
+        if (!notModified && status != 403) {
+            // Like GitHub, 304 responses don't count against the rate limit
+            rateLimitUsed.computeIfAbsent(resource, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", Integer.toString(rateLimit));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", Long.toString(getRemaining(resource)));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", Long.toString(rateLimitReset));
+        exchange.getResponseHeaders().set("X-RateLimit-Resource", resource);
+        if (status == 200 && "GET".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "private, max-age=60, s-maxage=60");
+        }
+        if (link != null) {
+            exchange.getResponseHeaders().set("Link", link);
+        }
+        if (notModified) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toByteArray();
+    }
+
+    private static class Response {
+        private final String route;
+        private final int status;
+        private final JsonNode body;
+        private String link;
+
+        private Response(String route, int status, JsonNode body) {
+            this.route = route;
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static class Issue {
+        private final int number;
+        private final String title;
+        private final String body;
+        private final Instant createdAt = now();
+        private Instant updatedAt = createdAt;
+        private boolean open = true;
+        private final List<Comment> comments = new ArrayList<>();
+
+        private Issue(int number, String title, String body) {
+            this.number = number;
+            this.title = title;
+            this.body = body;
+        }
+    }
+
+    private static class Comment {
+        private static final AtomicLong nextId = new AtomicLong(1);
+
+        private final long id = nextId.getAndIncrement();
+        private final String body;
+        private final Instant createdAt = now();
+
+        private Comment(String body) {
+            this.body = body;
+        }
+    }
+}
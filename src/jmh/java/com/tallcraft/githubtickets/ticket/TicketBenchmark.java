@@ -0,0 +1,76 @@
+package com.tallcraft.githubtickets.ticket;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and chat rendering of tickets
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketBenchmark {
+    @Param({"10", "100", "1000"})
+    public int ticketCount;
+
+    private String location;
+    private Ticket ticket;
+    private List<Ticket> tickets;
+
+    @Setup
+    public void setup() {
+        location = new Location(-1204.5, 64, 3389.25).toString();
+
+        tickets = new ArrayList<>(ticketCount);
+        for (int i = 0; i < ticketCount; i++) {
+            Ticket listed = new Ticket(ticketCount - i, i % 4 != 0, new Date(1590000000000L + i * 60000L),
+                    UUID.randomUUID(), "Player" + i, "survival", "world", new Location(i, 64, -i),
+                    "Ticket text number " + i + ", long enough to be cut off in the ticket list view");
+            listed.setUpdatedAt(listed.getTimestamp());
+            tickets.add(listed);
+        }
+
+        // Ticket with a typical conversation
+        ticket = tickets.get(0);
+        LinkedList<TicketComment> comments = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            comments.add(new TicketComment(new Date(1590000000000L + i * 3600000L),
+                    i % 2 == 0 ? ticket.getPlayerUUID() : null, i % 2 == 0 ? ticket.getPlayerName() : "Staff",
+                    "Reply number " + i + " with a sentence or two of text."));
+        }
+        ticket.setComments(comments);
+    }
+
+    @Benchmark
+    public Location locationFromString() {
+        return Location.fromString(location);
+    }
+
+    @Benchmark
+    public BaseComponent[] toChat() {
+        return ticket.toChat();
+    }
+
+    @Benchmark
+    public BaseComponent[] ticketListToChat() {
+        return Ticket.ticketListToChat(tickets);
+    }
+
+    /**
+     * List rendering through the render cache, as done by the list command
+     */
+    @Benchmark
+    public BaseComponent[] ticketListToChatCached() {
+        return TicketRenderCache.getInstance().ticketListToChat(tickets);
+    }
+}
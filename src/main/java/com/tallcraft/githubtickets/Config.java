@@ -32,8 +32,12 @@ public class Config {
 
         defaultConfig.set("serverName", "");
         defaultConfig.set("ticketMinWordCount", 2);
+        defaultConfig.set("ticketListPageSize", 10);
+        defaultConfig.set("ticketShowCommentCount", 10);
 
         ConfigurationSection github = defaultConfig.createSection("github");
+        github.set("endpoint", "https://api.github.com");
+        github.set("graphql", true);
         ConfigurationSection githubAuth = github.createSection("auth");
         ConfigurationSection githubRepo = github.createSection("repository");
         githubAuth.set("username", "");
@@ -41,6 +45,47 @@ public class Config {
         githubAuth.set("oauth", "");
         githubRepo.set("user", "");
         githubRepo.set("repoName", "");
+        ConfigurationSection githubRateLimit = github.createSection("rateLimit");
+        githubRateLimit.set("burst", 20);
+        githubRateLimit.set("requestsPerSecond", 5.0);
+        githubRateLimit.set("reserve", 500);
+        githubRateLimit.set("maxWait", 10);
+
+        ConfigurationSection cache = defaultConfig.createSection("cache");
+        cache.set("maxAge", 300);
+        // Size of the HTTP response cache in MB
+        cache.set("httpSize", 10);
+
+        // Local ticket store is written to disk periodically (interval in seconds) and on shutdown
+        ConfigurationSection snapshot = defaultConfig.createSection("snapshot");
+        snapshot.set("enabled", true);
+        snapshot.set("interval", 300);
+
+        ConfigurationSection executor = defaultConfig.createSection("executor");
+        executor.set("maxConcurrency", 8);
+
+        // Bulk operations such as /ticket close 10-25: concurrent GitHub writes and max tickets per command
+        ConfigurationSection bulk = defaultConfig.createSection("bulk");
+        bulk.set("parallelism", 4);
+        bulk.set("maxTickets", 50);
+
+        ConfigurationSection outbox = defaultConfig.createSection("outbox");
+        outbox.set("enabled", true);
+
+        ConfigurationSection webhook = defaultConfig.createSection("webhook");
+        webhook.set("enabled", false);
+        webhook.set("bind", "0.0.0.0");
+        webhook.set("port", 8765);
+        webhook.set("path", "/github-webhook");
+        webhook.set("secret", "");
+
+        // Pass ticket changes on to the other servers of a BungeeCord network
+        ConfigurationSection network = defaultConfig.createSection("network");
+        network.set("enabled", false);
+
+        ConfigurationSection sync = defaultConfig.createSection("sync");
+        sync.set("enabled", true);
+        sync.set("interval", 60);
 
         // TODO
 //        ConfigurationSection chat = defaultConfig.createSection("chat");
@@ -49,6 +94,7 @@ public class Config {
 //        locale.set("country", "US");
 
         ConfigurationSection notify = defaultConfig.createSection(("notify"));
+        notify.set("permissionRecheckInterval", 30);
         ConfigurationSection notifyOnLogin = notify.createSection("onLogin");
         notifyOnLogin.set("staff", true);
         notifyOnLogin.set("player", true);
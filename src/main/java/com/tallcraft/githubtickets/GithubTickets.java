@@ -2,13 +2,16 @@ package com.tallcraft.githubtickets;
 
 import com.tallcraft.githubtickets.command.TicketCommandExecutor;
 import com.tallcraft.githubtickets.github.GitHubController;
+import com.tallcraft.githubtickets.github.RequestScheduler;
 import com.tallcraft.githubtickets.ticket.TicketController;
 import io.papermc.lib.PaperLib;
 import org.bukkit.Bukkit;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.logging.Logger;
 
 public final class GithubTickets extends JavaPlugin implements Listener {
@@ -17,6 +20,9 @@ public final class GithubTickets extends JavaPlugin implements Listener {
     private static final TicketController ticketController = TicketController.getInstance();
     private static final TicketNotifier ticketNotifier = TicketNotifier.getInstance();
     private final Logger logger = Logger.getLogger(this.getName());
+    private NetworkBridge networkBridge;
+    // Snapshot of the local ticket store, null if disabled
+    private File snapshotFile;
 
     private boolean isUnset(String str) {
         return str == null || str.isEmpty();
@@ -47,38 +53,175 @@ public final class GithubTickets extends JavaPlugin implements Listener {
             ticketController.setServerName(serverName);
         }
 
-        // Connect to github repo
-        try {
-            if (!isUnset(oauth)) {
-                gitHubController.setOauth(oauth);
-            } else {
-                gitHubController.setCredentials(user, password);
+        // Expose call, cache and command metrics via JMX
+        Metrics.getInstance().register();
+
+        // Blocking GitHub I/O runs on a dedicated executor, results are dispatched to the main thread once per tick
+        ticketController.startExecutor(Math.max(1, config.store().getInt("executor.maxConcurrency")));
+        SyncDispatcher.getInstance().start(this);
+
+        // Max age of locally cached tickets in seconds
+        ticketController.setCacheMaxAge(config.store().getLong("cache.maxAge") * 1000);
+        ticketController.setBulkParallelism(config.store().getInt("bulk.parallelism"));
+
+        // Start with the ticket store of the last run, the sync only fetches changes since
+        if (config.store().getBoolean("snapshot.enabled")) {
+            snapshotFile = new File(getDataFolder(), "tickets.snapshot");
+            try {
+                int count = ticketController.loadSnapshot(snapshotFile);
+                if (count > 0) {
+                    logger.info("Restored " + count + " tickets from snapshot");
+                }
+            } catch (IOException ex) {
+                logger.warning("Could not load ticket snapshot, starting with an empty ticket store");
+                ex.printStackTrace();
             }
-            gitHubController.connect(repositoryUser, repositoryName);
-            logger.info("Connected to GitHub repository: " + repositoryUser + ":" + repositoryName);
-            logger.info(gitHubController.getRateLimitInfo());
-        } catch (IOException ex) {
-            logger.info("Error while connecting to GitHub");
-            ex.printStackTrace();
-            Bukkit.getPluginManager().disablePlugin(this);
-            return;
         }
 
+        // Configure GitHub connection
+        String endpoint = config.store().getString("github.endpoint");
+        if (!isUnset(endpoint)) {
+            gitHubController.setEndpoint(endpoint);
+        }
+        gitHubController.setUseGraphQL(config.store().getBoolean("github.graphql"));
+        gitHubController.setCache(new File(getDataFolder(), "http-cache"),
+                Math.max(1, config.store().getLong("cache.httpSize")) * 1024 * 1024);
+        // Pacing of GitHub requests, background work is shed when less than 'reserve' requests are left
+        RequestScheduler scheduler = gitHubController.getScheduler();
+        scheduler.setRate(config.store().getInt("github.rateLimit.burst"),
+                config.store().getDouble("github.rateLimit.requestsPerSecond"));
+        scheduler.setReserve(config.store().getInt("github.rateLimit.reserve"));
+        scheduler.setMaxWait(config.store().getLong("github.rateLimit.maxWait") * 1000);
+        if (!isUnset(oauth)) {
+            gitHubController.setOauth(oauth);
+        } else {
+            gitHubController.setCredentials(user, password);
+        }
+
+        // Connect in the background, a slow GitHub must not delay server startup.
+        // Commands issued meanwhile are queued until connected.
+        gitHubController.connectAsync(repositoryUser, repositoryName, ticketController.getExecutor())
+                .thenRun(() -> {
+                    logger.info("Connected to GitHub repository: " + repositoryUser + ":" + repositoryName);
+                    logger.info(gitHubController.getRateLimitInfo());
+                })
+                .whenCompleteAsync((result, ex) -> onConnected(ex), SyncDispatcher.getInstance());
+
         // Initialize ticket notifier and register event listener
         TicketNotifier.setTicketController(ticketController);
         TicketNotifier.setPlugin(this);
         Bukkit.getServer().getPluginManager().registerEvents(ticketNotifier, this);
 
+        // Keep track of notification recipients, permissions are rechecked periodically (interval in seconds)
+        RecipientRegistry recipientRegistry = RecipientRegistry.getInstance();
+        Bukkit.getServer().getPluginManager().registerEvents(recipientRegistry, this);
+        recipientRegistry.start(this, Math.max(1, config.store().getLong("notify.permissionRecheckInterval")) * 20);
+
+        // Exchange ticket changes with the other servers of the network
+        if (config.store().getBoolean("network.enabled")) {
+            networkBridge = new NetworkBridge(this, ticketController);
+            networkBridge.start();
+        }
+
+        // Write ticket store to disk periodically, interval is configured in seconds
+        if (snapshotFile != null) {
+            File file = snapshotFile;
+            long snapshotInterval = Math.max(1, config.store().getLong("snapshot.interval")) * 20;
+            Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> saveSnapshot(file),
+                    snapshotInterval, snapshotInterval);
+        }
+
         // Initialize and register commands
         int minWordCount = config.store().getInt("ticketMinWordCount");
-        TicketCommandExecutor ticketCommandExecutor = new TicketCommandExecutor(this, minWordCount);
+        // GitHub returns at most 100 issues per page
+        int listPageSize = Math.max(1, Math.min(100, config.store().getInt("ticketListPageSize")));
+        int showCommentCount = Math.max(1, Math.min(100, config.store().getInt("ticketShowCommentCount")));
+        int bulkMaxTickets = Math.max(1, config.store().getInt("bulk.maxTickets"));
+        TicketCommandExecutor ticketCommandExecutor = new TicketCommandExecutor(this, minWordCount, listPageSize,
+                showCommentCount, bulkMaxTickets);
         this.getCommand("ticket").setExecutor(ticketCommandExecutor);
 
         PaperLib.suggestPaper(this);
     }
 
+    /**
+     * Start everything which needs a GitHub connection, runs on the main thread once connecting finished
+     *
+     * @param ex connection error, null if connected
+     */
+    private void onConnected(Throwable ex) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (ex != null) {
+            logger.info("Error while connecting to GitHub");
+            (ex.getCause() != null ? ex.getCause() : ex).printStackTrace();
+            Bukkit.getPluginManager().disablePlugin(this);
+            return;
+        }
+
+        // Journal ticket writes and send them to GitHub in the background
+        if (config.store().getBoolean("outbox.enabled")) {
+            try {
+                ticketController.startOutbox(new File(getDataFolder(), "outbox.journal"));
+            } catch (IOException e) {
+                logger.warning("Could not open ticket outbox, sending ticket writes directly");
+                e.printStackTrace();
+            }
+        }
+
+        // Receive ticket changes pushed by GitHub
+        if (config.store().getBoolean("webhook.enabled")) {
+            String secret = config.store().getString("webhook.secret");
+            if (isUnset(secret)) {
+                logger.warning("Webhook enabled without secret, not starting it. Set webhook.secret in config.yml.");
+            } else {
+                try {
+                    InetSocketAddress address = new InetSocketAddress(config.store().getString("webhook.bind"),
+                            config.store().getInt("webhook.port"));
+                    ticketController.startWebhook(address, config.store().getString("webhook.path"), secret);
+                    logger.info("Listening for GitHub webhooks on " + address);
+                } catch (IOException e) {
+                    logger.warning("Could not start webhook listener");
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        // Keep local ticket store in sync with GitHub, interval is configured in seconds
+        if (config.store().getBoolean("sync.enabled")) {
+            long syncInterval = Math.max(1, config.store().getLong("sync.interval")) * 20;
+            ticketController.getSync().runTaskTimerAsynchronously(this, 0, syncInterval);
+        }
+    }
+
+    private void saveSnapshot(File file) {
+        try {
+            ticketController.saveSnapshot(file);
+        } catch (IOException ex) {
+            logger.warning("Could not write ticket snapshot");
+            ex.printStackTrace();
+        }
+    }
+
     @Override
     public void onDisable() {
-        // Plugin shutdown logic
+        // Pending ticket writes stay journaled for the next start
+        ticketController.stopWebhook();
+        if (networkBridge != null) {
+            networkBridge.stop();
+            networkBridge = null;
+        }
+        ticketController.stopOutbox();
+        ticketController.stopExecutor();
+        if (snapshotFile != null) {
+            saveSnapshot(snapshotFile);
+            snapshotFile = null;
+        }
+        if (gitHubController.isConnected()) {
+            logger.info("HTTP cache: " + gitHubController.getCacheStats());
+        }
+        SyncDispatcher.getInstance().stop();
+        Metrics.getInstance().unregister();
     }
 }
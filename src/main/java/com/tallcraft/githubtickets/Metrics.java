@@ -0,0 +1,284 @@
+package com.tallcraft.githubtickets;
+
+import com.tallcraft.githubtickets.github.GitHubController;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of GitHub calls, ticket conversions and commands, plus cache hit ratios.
+ * <br>
+ * Operations are named by area, e.g. github.getIssue, convert.ticket or command.list.
+ * Recording is lock-free and cheap enough for hot paths.
+ */
+public class Metrics implements MetricsMXBean {
+    private static Metrics ourInstance = new Metrics();
+
+    // Upper bounds of the latency buckets in milliseconds, the last bucket holds everything slower
+    private static final long[] bucketBounds = {1, 2, 5, 10, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750, 1000,
+            1500, 2000, 3000, 5000, 10000};
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final Map<String, HitCounter> hitCounters = new ConcurrentHashMap<>();
+
+    private ObjectName objectName;
+
+    /**
+     * Operation to time
+     */
+    public interface TimedCall<T> {
+        T call() throws IOException;
+    }
+
+    public static Metrics getInstance() {
+        return ourInstance;
+    }
+
+    /**
+     * Run and time operation, exceptions count as failure
+     *
+     * @param operation operation name
+     * @param call      operation to run
+     * @return result of the operation
+     * @throws IOException error of the operation
+     */
+    public <T> T time(String operation, TimedCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            record(operation, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Record a single run of an operation
+     *
+     * @param operation operation name
+     * @param nanos     duration in nanoseconds
+     * @param success   false if the operation failed
+     */
+    public void record(String operation, long nanos, boolean success) {
+        operations.computeIfAbsent(operation, name -> new Operation()).record(nanos, success);
+    }
+
+    /**
+     * Record a cache lookup
+     *
+     * @param cache cache name, e.g. ticketStore
+     * @param hit   true if the lookup was served from cache
+     */
+    public void recordHit(String cache, boolean hit) {
+        HitCounter counter = hitCounters.computeIfAbsent(cache, name -> new HitCounter());
+        (hit ? counter.hits : counter.misses).increment();
+    }
+
+    /**
+     * Get share of cache lookups which were hits
+     *
+     * @param cache cache name
+     * @return ratio between 0 and 1, 0 if there were no lookups yet
+     */
+    public double getHitRate(String cache) {
+        HitCounter counter = hitCounters.get(cache);
+        if (counter == null) {
+            return 0;
+        }
+        long hits = counter.hits.sum();
+        long total = hits + counter.misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getRateLimitRemaining() {
+        return GitHubController.getInstance().getScheduler().getRemainingQuota();
+    }
+
+    @Override
+    public double getHttpCacheHitRate() {
+        return GitHubController.getInstance().getCacheStats().getHitRate();
+    }
+
+    @Override
+    public double getTicketStoreHitRate() {
+        return getHitRate("ticketStore");
+    }
+
+    @Override
+    public double getRenderCacheHitRate() {
+        return getHitRate("renderCache");
+    }
+
+    @Override
+    public Map<String, OperationStats> getOperations() {
+        Map<String, OperationStats> result = new TreeMap<>();
+        operations.forEach((name, operation) -> result.put(name, operation.getStats()));
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        operations.clear();
+        hitCounters.clear();
+    }
+
+    /**
+     * Register MXBean with the platform MBean server
+     */
+    void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            objectName = new ObjectName("com.tallcraft.githubtickets:type=Metrics");
+            // Left over from a previous load of the plugin
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException ex) {
+            ex.printStackTrace();
+            objectName = null;
+        }
+    }
+
+    void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+        objectName = null;
+    }
+
+    private static class HitCounter {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    private static class Operation {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(bucketBounds.length + 1);
+
+        private void record(long nanos, boolean success) {
+            count.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long millis = nanos / 1000000;
+            int bucket = 0;
+            while (bucket < bucketBounds.length && millis >= bucketBounds[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+
+        private OperationStats getStats() {
+            long[] counts = new long[buckets.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            double maxMillis = maxNanos.get() / 1e6;
+            long runs = count.sum();
+            return new OperationStats(runs, failures.sum(), runs == 0 ? 0 : totalNanos.sum() / 1e6 / runs,
+                    percentile(counts, total, 0.5, maxMillis), percentile(counts, total, 0.95, maxMillis),
+                    percentile(counts, total, 0.99, maxMillis), maxMillis);
+        }
+
+        /**
+         * Estimate percentile as upper bound of the bucket it falls in
+         */
+        private static double percentile(long[] counts, long total, double quantile, double maxMillis) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < bucketBounds.length ? Math.min(bucketBounds[i], maxMillis) : maxMillis;
+                }
+            }
+            return maxMillis;
+        }
+    }
+
+    /**
+     * Statistics of an operation. Percentiles are estimated from the latency histogram.
+     */
+    public static class OperationStats {
+        private final long count;
+        private final long failures;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        OperationStats(long count, long failures, double meanMillis, double p50Millis, double p95Millis,
+                       double p99Millis, double maxMillis) {
+            this.count = count;
+            this.failures = failures;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d runs, %d failed, avg %.1fms, p50 %.1fms, p95 %.1fms, p99 %.1fms, max %.1fms",
+                    count, failures, meanMillis, p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.tallcraft.githubtickets;
+
+import java.util.Map;
+
+/**
+ * JMX view of the plugin metrics, registered as com.tallcraft.githubtickets:type=Metrics
+ */
+public interface MetricsMXBean {
+    /**
+     * @return remaining GitHub requests until the rate limit resets, -1 if unknown
+     */
+    int getRateLimitRemaining();
+
+    /**
+     * @return share of GitHub GET requests answered from the HTTP cache or with 304 Not Modified
+     */
+    double getHttpCacheHitRate();
+
+    /**
+     * @return share of ticket reads served from the local ticket store
+     */
+    double getTicketStoreHitRate();
+
+    /**
+     * @return share of ticket chat messages served from the render cache
+     */
+    double getRenderCacheHitRate();
+
+    /**
+     * @return statistics of timed operations by operation name
+     */
+    Map<String, Metrics.OperationStats> getOperations();
+
+    /**
+     * Reset all counters and latency histograms
+     */
+    void reset();
+}
@@ -0,0 +1,262 @@
+package com.tallcraft.githubtickets;
+
+import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketCodec;
+import com.tallcraft.githubtickets.ticket.TicketComment;
+import com.tallcraft.githubtickets.ticket.TicketController;
+import com.tallcraft.githubtickets.ticket.TicketEventListener;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Passes ticket changes on to the other servers of a BungeeCord network and applies changes received from them.
+ * <br>
+ * Messages are sent through the BungeeCord "Forward" sub-channel to all servers.
+ * Plugin messages travel over a player connection, so changes are only passed on while a player is online.
+ */
+public class NetworkBridge implements PluginMessageListener, TicketEventListener {
+    private static final String channel = "BungeeCord";
+    private static final String subChannel = "GitHubTickets";
+    private static final byte protocolVersion = 1;
+
+    private static final byte typeCreated = 1;
+    private static final byte typeComment = 2;
+    private static final byte typeStatus = 3;
+    private static final byte typeBulkStatus = 4;
+
+    // Plugin messages are limited to 32766 bytes including the forward header
+    private static final int maxMessageSize = 32000;
+    // Protocol header, status, actor and ticket count of bulk status messages
+    private static final int bulkHeaderSize = 64;
+
+    private static final Logger logger = Logger.getLogger(NetworkBridge.class.getName());
+
+    private final GithubTickets plugin;
+    private final TicketController ticketController;
+    private final TicketCodec codec = new TicketCodec();
+
+    // Identifies messages of this server, in case they are echoed back
+    private final UUID serverId = UUID.randomUUID();
+
+    NetworkBridge(GithubTickets plugin, TicketController ticketController) {
+        this.plugin = plugin;
+        this.ticketController = ticketController;
+    }
+
+    void start() {
+        Bukkit.getServer().getMessenger().registerOutgoingPluginChannel(plugin, channel);
+        Bukkit.getServer().getMessenger().registerIncomingPluginChannel(plugin, channel, this);
+        ticketController.addEventListener(this);
+    }
+
+    void stop() {
+        ticketController.removeEventListener(this);
+        Bukkit.getServer().getMessenger().unregisterIncomingPluginChannel(plugin);
+        Bukkit.getServer().getMessenger().unregisterOutgoingPluginChannel(plugin);
+    }
+
+    @Override
+    public void onTicketCreated(Ticket ticket) {
+        send(typeCreated, ticket, out -> {
+        });
+    }
+
+    @Override
+    public void onTicketComment(Ticket ticket, TicketComment comment) {
+        send(typeComment, ticket, out -> codec.writeComment(out, comment));
+    }
+
+    @Override
+    public void onTicketStatusChange(Ticket ticket, UUID actor) {
+        send(typeStatus, ticket, out -> TicketCodec.writeUUID(out, actor));
+    }
+
+    @Override
+    public void onTicketsStatusChange(List<Ticket> tickets, boolean open, UUID actor) {
+        // One message per batch of tickets fitting into a plugin message, usually a single one
+        List<byte[]> batch = new ArrayList<>();
+        int batchSize = 0;
+        for (Ticket ticket : tickets) {
+            byte[] encoded;
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                codec.writeTicket(new DataOutputStream(buffer), ticket, false);
+                encoded = buffer.toByteArray();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                continue;
+            }
+            if (encoded.length > maxMessageSize - bulkHeaderSize) {
+                logger.warning("Ticket #" + ticket.getId() + " is too large to pass on to other servers");
+                continue;
+            }
+            if (batchSize + encoded.length > maxMessageSize - bulkHeaderSize) {
+                sendBulkStatus(batch, open, actor);
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+            batch.add(encoded);
+            batchSize += encoded.length;
+        }
+        if (!batch.isEmpty()) {
+            sendBulkStatus(batch, open, actor);
+        }
+    }
+
+    /**
+     * @param tickets encoded tickets, fitting into one message
+     */
+    private void sendBulkStatus(List<byte[]> tickets, boolean open, UUID actor) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        try {
+            writeHeader(out, typeBulkStatus);
+            out.writeBoolean(open);
+            TicketCodec.writeUUID(out, actor);
+            out.writeInt(tickets.size());
+            for (byte[] ticket : tickets) {
+                out.write(ticket);
+            }
+        } catch (IOException ex) {
+            // Can't happen with a byte array
+            throw new UncheckedIOException(ex);
+        }
+        forward(buffer.toByteArray());
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Encode ticket event and forward it to all servers
+     *
+     * @param type   event type
+     * @param ticket changed ticket, sent *without* comments
+     * @param extra  writes event specific data
+     */
+    private void send(byte type, Ticket ticket, Writer extra) {
+        byte[] data;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            writeHeader(out, type);
+            codec.writeTicket(out, ticket, false);
+            extra.write(out);
+            data = buffer.toByteArray();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        if (data.length > maxMessageSize) {
+            logger.warning("Ticket #" + ticket.getId() + " is too large to pass on to other servers");
+            return;
+        }
+        forward(data);
+    }
+
+    private void writeHeader(DataOutputStream out, byte type) throws IOException {
+        out.writeByte(protocolVersion);
+        TicketCodec.writeUUID(out, serverId);
+        out.writeByte(type);
+    }
+
+    /**
+     * Forward encoded event to all servers
+     *
+     * @param data event data, at most {@link #maxMessageSize} bytes
+     */
+    private void forward(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        try {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(subChannel);
+            out.writeShort(data.length);
+            out.write(data);
+        } catch (IOException ex) {
+            // Can't happen with a byte array
+            throw new UncheckedIOException(ex);
+        }
+        byte[] message = buffer.toByteArray();
+
+        // Events may fire off the main thread
+        Util.run(plugin, false, () -> {
+            Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+            if (!players.hasNext()) {
+                // No connection to the proxy, the other servers catch up on their next sync
+                return;
+            }
+            players.next().sendPluginMessage(plugin, channel, message);
+        });
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!NetworkBridge.channel.equals(channel)) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+            if (!subChannel.equals(in.readUTF())) {
+                return;
+            }
+            byte[] data = new byte[in.readUnsignedShort()];
+            in.readFully(data);
+            receive(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException ex) {
+            logger.warning("Invalid ticket message from network: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Apply ticket event from another server, without passing it on again
+     */
+    private void receive(DataInputStream in) throws IOException {
+        if (in.readByte() != protocolVersion) {
+            // Server runs another plugin version
+            return;
+        }
+        if (serverId.equals(TicketCodec.readUUID(in))) {
+            return;
+        }
+        byte type = in.readByte();
+        if (type == typeBulkStatus) {
+            boolean open = in.readBoolean();
+            UUID actor = TicketCodec.readUUID(in);
+            int count = in.readInt();
+            if (count < 0 || count > maxMessageSize) {
+                throw new IOException("Invalid ticket count " + count);
+            }
+            List<Ticket> tickets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tickets.add(codec.readTicket(in));
+            }
+            ticketController.applyTicketsStatusChange(tickets, open, actor, false);
+            return;
+        }
+        Ticket ticket = codec.readTicket(in);
+        switch (type) {
+            case typeCreated:
+                ticketController.applyTicketCreated(ticket, false);
+                break;
+            case typeComment:
+                ticketController.applyTicketComment(ticket, codec.readComment(in), false);
+                break;
+            case typeStatus:
+                ticketController.applyTicketStatusChange(ticket, TicketCodec.readUUID(in), false);
+                break;
+            default:
+                // Unknown event type
+        }
+    }
+}
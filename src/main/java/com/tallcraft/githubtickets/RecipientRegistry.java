@@ -0,0 +1,118 @@
+package com.tallcraft.githubtickets;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of online players who receive ticket notifications.
+ * <br>
+ * Staff (players with notify.all permission) and online players by UUID are kept up to date on join, quit,
+ * world change and by a periodic permission recheck, so sending a notification only touches its recipients.
+ * Lookups are thread safe, ticket events may fire off the main thread.
+ */
+public class RecipientRegistry extends BukkitRunnable implements Listener {
+    private static RecipientRegistry ourInstance = new RecipientRegistry();
+
+    private final Map<UUID, Player> online = new ConcurrentHashMap<>();
+    private final Map<UUID, Player> staff = new ConcurrentHashMap<>();
+
+    public static RecipientRegistry getInstance() {
+        return ourInstance;
+    }
+
+    /**
+     * Register players already online (plugin reload) and schedule the periodic permission recheck
+     *
+     * @param plugin   plugin to schedule recheck for
+     * @param interval recheck interval in ticks
+     */
+    void start(GithubTickets plugin, long interval) {
+        run();
+        runTaskTimer(plugin, interval, interval);
+    }
+
+    /**
+     * Get online players with permission to receive notifications for all tickets
+     *
+     * @return unmodifiable live view
+     */
+    public Collection<Player> getStaff() {
+        return Collections.unmodifiableCollection(staff.values());
+    }
+
+    /**
+     * Test if player receives notifications for all tickets
+     *
+     * @param uuid player UUID
+     * @return true if player is online staff
+     */
+    public boolean isStaff(UUID uuid) {
+        return staff.containsKey(uuid);
+    }
+
+    /**
+     * Get online player by UUID
+     *
+     * @param uuid player UUID, may be null
+     * @return player or null if not online
+     */
+    public Player getOnline(UUID uuid) {
+        return uuid == null ? null : online.get(uuid);
+    }
+
+    /**
+     * Update registry entry of a player, e.g. after their permissions changed
+     *
+     * @param player Player to update
+     */
+    public void refresh(Player player) {
+        UUID uuid = player.getUniqueId();
+        online.put(uuid, player);
+        if (Util.hasPerm(player, "notify.all")) {
+            staff.put(uuid, player);
+        } else {
+            staff.remove(uuid);
+        }
+    }
+
+    /**
+     * Periodic recheck, permission plugins don't fire an event when permissions change
+     */
+    @Override
+    public void run() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            refresh(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        online.remove(uuid);
+        staff.remove(uuid);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permissions may be per world
+        refresh(event.getPlayer());
+    }
+}
@@ -0,0 +1,71 @@
+package com.tallcraft.githubtickets;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on the main server thread.
+ * Tasks are queued and drained once per tick by a single repeating task,
+ * instead of scheduling a new Bukkit task for every hop back to the main thread.
+ */
+public class SyncDispatcher extends BukkitRunnable implements Executor {
+    private static SyncDispatcher ourInstance = new SyncDispatcher();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean started = false;
+
+    public static SyncDispatcher getInstance() {
+        return ourInstance;
+    }
+
+    /**
+     * Start draining the queue every tick
+     *
+     * @param plugin plugin to schedule the task for
+     */
+    void start(Plugin plugin) {
+        runTaskTimer(plugin, 1, 1);
+        started = true;
+    }
+
+    /**
+     * Stop draining, queued tasks are run immediately on the calling (main) thread
+     */
+    void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        cancel();
+        run();
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+    }
+
+    @Override
+    public void run() {
+        // Only run tasks queued before this tick, tasks queued by tasks run next tick
+        for (int count = tasks.size(); count > 0; count--) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+}
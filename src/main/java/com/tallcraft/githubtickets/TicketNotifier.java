@@ -1,5 +1,7 @@
 package com.tallcraft.githubtickets;
 
+import com.tallcraft.githubtickets.github.GitHubController;
+import com.tallcraft.githubtickets.github.RequestScheduler;
 import com.tallcraft.githubtickets.ticket.Ticket;
 import com.tallcraft.githubtickets.ticket.TicketComment;
 import com.tallcraft.githubtickets.ticket.TicketController;
@@ -8,14 +10,14 @@ import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
 import net.md_5.bungee.api.chat.HoverEvent;
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 
-import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -38,40 +40,59 @@ public class TicketNotifier implements Listener {
         TicketNotifier.plugin = plugin;
     }
 
-    private ComponentBuilder createTicketMsg(String msg, String hoverMsg, String command) {
+    // Hover texts are the same for every message, build them once
+    private static final HoverEvent showTicketHover = new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+            new ComponentBuilder("Click to show ticket").create());
+    private static final HoverEvent showTicketsHover = new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+            new ComponentBuilder("Click to show tickets").create());
+    private static final ClickEvent listTicketsClick = new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/ticket list");
+
+    private final RecipientRegistry recipients = RecipientRegistry.getInstance();
+
+    private BaseComponent[] createTicketMsg(String msg, HoverEvent hoverEvent, ClickEvent clickEvent) {
         return new ComponentBuilder(msg)
                 .bold(true)
                 .color(ChatColor.GOLD)
-                .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, command))
-                .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                        new ComponentBuilder(hoverMsg).create()));
+                .event(clickEvent)
+                .event(hoverEvent)
+                .create();
     }
 
-    private List<Player> getPlayersToNotify(boolean notifyStaff, boolean notifyAuthor,
-                                            UUID authorUUID, UUID excludeUUID) {
-        if (!notifyStaff && (!notifyAuthor || authorUUID == null)) {
-            return null;
-        }
-        return Bukkit.getServer().getOnlinePlayers().stream()
-                .filter(player -> {
-                    if (excludeUUID != null && excludeUUID.equals(player.getUniqueId())) {
-                        return false;
-                    }
-                    if (notifyStaff && Util.hasPerm(player, "notify.all")) {
-                        return true;
-                    }
-                    return notifyAuthor && authorUUID != null && authorUUID.equals(player.getUniqueId());
-                })
-                .collect(Collectors.toList());
+    /**
+     * Create notification message linking to a ticket
+     *
+     * @param msg message text
+     * @param id  Ticket ID to show on click
+     * @return message
+     */
+    private BaseComponent[] createTicketMsg(String msg, int id) {
+        return createTicketMsg(msg, showTicketHover, new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/ticket show " + id));
     }
 
-    private void notifyPlayers(boolean notifyStaff, boolean notifyAuthor, UUID authorUUID, UUID excludeUUID, BaseComponent[] message) {
-        List<Player> players = getPlayersToNotify(notifyStaff, notifyAuthor, authorUUID, excludeUUID);
-        if (players == null || players.size() == 0) {
-            return;
+    /**
+     * Send message to online staff and / or the ticket author
+     *
+     * @param notifyStaff  true to notify players with notify.all permission
+     * @param notifyAuthor true to notify the author
+     * @param authorUUID   UUID of the ticket author, may be null
+     * @param excludeUUID  UUID of player to skip, e.g. the one who caused the event, may be null
+     * @param message      message to send
+     */
+    void notifyPlayers(boolean notifyStaff, boolean notifyAuthor, UUID authorUUID, UUID excludeUUID, BaseComponent[] message) {
+        if (notifyStaff) {
+            for (Player player : recipients.getStaff()) {
+                if (!player.getUniqueId().equals(excludeUUID)) {
+                    player.spigot().sendMessage(message);
+                }
+            }
         }
-        for (Player player : players) {
-            player.spigot().sendMessage(message);
+        if (notifyAuthor && authorUUID != null && !authorUUID.equals(excludeUUID)
+                // Staff authors already got the message
+                && !(notifyStaff && recipients.isStaff(authorUUID))) {
+            Player author = recipients.getOnline(authorUUID);
+            if (author != null) {
+                author.spigot().sendMessage(message);
+            }
         }
     }
 
@@ -82,9 +103,26 @@ public class TicketNotifier implements Listener {
         if (ticket == null) {
             throw new IllegalArgumentException("Ticket event without ticket!");
         }
-        ComponentBuilder msg = createTicketMsg("New Ticket #" + ticket.getId(),
-                "Click to show ticket", "/ticket show " + ticket.getId());
-        notifyPlayers(config.store().getBoolean("notify.onCreate.staff"), false, null, ticket.getPlayerUUID(), msg.create());
+        BaseComponent[] msg = createTicketMsg("New Ticket #" + ticket.getId(), ticket.getId());
+        notifyPlayers(config.store().getBoolean("notify.onCreate.staff"), false, null, ticket.getPlayerUUID(), msg);
+    }
+
+    /**
+     * Tell the author of a journaled ticket that it has been created on GitHub
+     *
+     * @param ticket        created ticket
+     * @param provisionalId id the ticket had until it was created
+     */
+    public void onProvisionalTicketCreated(Ticket ticket, int provisionalId) {
+        if (ticketController == null || plugin == null || config == null) {
+            throw new IllegalStateException("Not initialized");
+        }
+        if (ticket == null) {
+            throw new IllegalArgumentException("Ticket event without ticket!");
+        }
+        BaseComponent[] msg = createTicketMsg(
+                "Ticket #" + Ticket.idToString(provisionalId) + " is now ticket #" + ticket.getId(), ticket.getId());
+        notifyPlayers(false, true, ticket.getPlayerUUID(), null, msg);
     }
 
     public void onTicketStatusChange(Ticket ticket, UUID actor) {
@@ -94,13 +132,58 @@ public class TicketNotifier implements Listener {
         if (ticket == null) {
             throw new IllegalArgumentException("Ticket event without ticket!");
         }
-        ComponentBuilder msg = createTicketMsg(
-                "Ticket #" + ticket.getId() + " " + (ticket.isOpen() ? "opened" : "closed"),
-                "Click to show ticket", "/ticket show " + ticket.getId());
+        BaseComponent[] msg = createTicketMsg(
+                "Ticket #" + ticket.getId() + " " + (ticket.isOpen() ? "opened" : "closed"), ticket.getId());
         notifyPlayers(
                 config.store().getBoolean("notify.onStatusChange.staff"),
                 config.store().getBoolean("notify.onStatusChange.player"),
-                ticket.getPlayerUUID(), actor, msg.create());
+                ticket.getPlayerUUID(), actor, msg);
+    }
+
+    /**
+     * Notify about a bulk status change with one message for staff and one per ticket author
+     *
+     * @param tickets changed tickets
+     * @param open    new status, true = open, false = closed
+     * @param actor   UUID of player who changed the status, may be null
+     */
+    public void onTicketsStatusChange(List<Ticket> tickets, boolean open, UUID actor) {
+        if (ticketController == null || plugin == null || config == null) {
+            throw new IllegalStateException("Not initialized");
+        }
+        if (tickets.size() == 1) {
+            onTicketStatusChange(tickets.get(0), actor);
+            return;
+        }
+        boolean notifyStaff = config.store().getBoolean("notify.onStatusChange.staff");
+        boolean notifyAuthor = config.store().getBoolean("notify.onStatusChange.player");
+        String action = open ? "opened" : "closed";
+
+        if (notifyStaff) {
+            BaseComponent[] msg = createTicketMsg(tickets.size() + " tickets " + action + ": " + idList(tickets),
+                    showTicketsHover, listTicketsClick);
+            notifyPlayers(true, false, null, actor, msg);
+        }
+        if (notifyAuthor) {
+            Map<UUID, List<Ticket>> byAuthor = tickets.stream().filter(ticket -> ticket.getPlayerUUID() != null)
+                    .collect(Collectors.groupingBy(Ticket::getPlayerUUID, LinkedHashMap::new, Collectors.toList()));
+            byAuthor.forEach((authorUUID, authorTickets) -> {
+                // Staff authors already got the summary
+                if (notifyStaff && recipients.isStaff(authorUUID)) {
+                    return;
+                }
+                BaseComponent[] msg = authorTickets.size() == 1
+                        ? createTicketMsg("Ticket #" + authorTickets.get(0).getId() + " " + action,
+                        authorTickets.get(0).getId())
+                        : createTicketMsg("Your tickets " + idList(authorTickets) + " were " + action,
+                        showTicketsHover, listTicketsClick);
+                notifyPlayers(false, true, authorUUID, actor, msg);
+            });
+        }
+    }
+
+    private static String idList(List<Ticket> tickets) {
+        return tickets.stream().map(ticket -> "#" + ticket.getId()).collect(Collectors.joining(", "));
     }
 
     public void onTicketComment(Ticket ticket, TicketComment comment) {
@@ -110,13 +193,11 @@ public class TicketNotifier implements Listener {
         if (ticket == null) {
             throw new IllegalArgumentException("Ticket event without ticket!");
         }
-        ComponentBuilder msg = createTicketMsg(
-                "New comment for Ticket #" + ticket.getId(),
-                "Click to show ticket", "/ticket show " + ticket.getId());
+        BaseComponent[] msg = createTicketMsg("New comment for Ticket #" + ticket.getId(), ticket.getId());
         notifyPlayers(
                 config.store().getBoolean("notify.onComment.staff"),
                 config.store().getBoolean("notify.onComment.player"),
-                ticket.getPlayerUUID(), comment.getPlayerUUID(), msg.create());
+                ticket.getPlayerUUID(), comment.getPlayerUUID(), msg);
     }
 
     @EventHandler
@@ -151,40 +232,62 @@ public class TicketNotifier implements Listener {
             filterUUID = player.getUniqueId();
         }
 
+        // Counters are kept up to date by writes and sync, no API call needed
+        int cachedCount = ticketController.getCachedOpenTicketCount(filterUUID);
+        if (cachedCount >= 0) {
+            sendOpenTicketCount(player, filterUUID == null, cachedCount);
+            return;
+        }
+
+        // Local ticket store not warm yet, fall back to fetching the list once connected.
+        // This is background work, it must not use up the quota needed for player commands.
+        GitHubController gitHubController = GitHubController.getInstance();
+        if (gitHubController.getState() == GitHubController.State.FAILED) {
+            return;
+        }
         UUID finalFilterUUID = filterUUID;
-        Util.run(plugin, true, () -> {
-            List<Ticket> tickets;
-            try {
-                tickets = ticketController.getTickets(false, true, true,
-                        finalFilterUUID, false);
-            } catch (IOException e) {
-                e.printStackTrace();
-                // Don't show anything to the player, ticket fetch failed.
-                return;
-            }
-            int ticketCount = tickets.size();
-            if (ticketCount == 0) {
-                // No open tickets to notify for
-                return;
-            }
-            Util.run(plugin, false, () -> {
-                String message;
-                if (finalFilterUUID == null) {
-                    message = "There "
-                            + (ticketCount == 1 ? "is" : "are")
-                            + " "
-                            + ticketCount
-                            + " open ticket"
-                            + (ticketCount == 1 ? "" : "s")
-                            + ".";
-                } else {
-                    message = "You have " + ticketCount + " open ticket" + (ticketCount == 1 ? "" : "s");
-                }
+        gitHubController.whenReady().thenCompose(ready -> ticketController.supplyAsync(() ->
+                gitHubController.runInBackground(() ->
+                        ticketController.getTickets(false, true, true, finalFilterUUID, false))))
+                .whenCompleteAsync((tickets, ex) -> {
+                    if (ex != null) {
+                        // Don't show anything to the player, ticket fetch failed or request quota is low
+                        if (!(ex.getCause() instanceof RequestScheduler.RequestDeferredException)) {
+                            ex.printStackTrace();
+                        }
+                        return;
+                    }
+                    if (player.isOnline()) {
+                        sendOpenTicketCount(player, finalFilterUUID == null, tickets.size());
+                    }
+                }, SyncDispatcher.getInstance());
+    }
 
-                ComponentBuilder builder = createTicketMsg(message,
-                        "Click to show tickets", "/ticket list");
-                player.spigot().sendMessage(builder.create());
-            });
-        });
+    /**
+     * Send open ticket count notification on login
+     *
+     * @param player      Player to notify
+     * @param all         true if count is for all tickets, false if it's for the players own tickets
+     * @param ticketCount Number of open tickets
+     */
+    private void sendOpenTicketCount(Player player, boolean all, int ticketCount) {
+        if (ticketCount == 0) {
+            // No open tickets to notify for
+            return;
+        }
+        String message;
+        if (all) {
+            message = "There "
+                    + (ticketCount == 1 ? "is" : "are")
+                    + " "
+                    + ticketCount
+                    + " open ticket"
+                    + (ticketCount == 1 ? "" : "s")
+                    + ".";
+        } else {
+            message = "You have " + ticketCount + " open ticket" + (ticketCount == 1 ? "" : "s");
+        }
+
+        player.spigot().sendMessage(createTicketMsg(message, showTicketsHover, listTicketsClick));
     }
 }
@@ -1,5 +1,6 @@
 package com.tallcraft.githubtickets;
 
+import com.tallcraft.githubtickets.ticket.TicketController;
 import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
@@ -18,17 +19,30 @@ public class Util {
         return sender.hasPermission("githubtickets." + perm);
     }
 
+    /**
+     * Run task async or on the main thread.
+     * Async tasks run on the ticket I/O executor, sync tasks are batched by the {@link SyncDispatcher}.
+     *
+     * @param plugin plugin to schedule task for
+     * @param async  true to run off the main thread
+     * @param task   task to run
+     */
     public static void run(Plugin plugin, boolean async, Runnable task) {
+        if (async) {
+            TicketController.getInstance().getExecutor().execute(task);
+            return;
+        }
+        SyncDispatcher dispatcher = SyncDispatcher.getInstance();
+        if (dispatcher.isStarted()) {
+            dispatcher.execute(task);
+            return;
+        }
         BukkitRunnable runnable = new BukkitRunnable() {
             @Override
             public void run() {
                 task.run();
             }
         };
-        if (async) {
-            runnable.runTaskAsynchronously(plugin);
-        } else {
-            runnable.runTask(plugin);
-        }
+        runnable.runTask(plugin);
     }
 }
@@ -1,6 +1,7 @@
 package com.tallcraft.githubtickets.command;
 
 import com.tallcraft.githubtickets.GithubTickets;
+import com.tallcraft.githubtickets.Metrics;
 import com.tallcraft.githubtickets.Util;
 import com.tallcraft.githubtickets.ticket.Ticket;
 import com.tallcraft.githubtickets.ticket.TicketController;
@@ -12,6 +13,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 abstract class AsyncCommand extends BukkitRunnable {
     static final TicketController ticketController = TicketController.getInstance();
+    static final Metrics metrics = Metrics.getInstance();
 
     protected GithubTickets plugin;
     protected TicketCommandExecutor executor;
@@ -44,14 +46,41 @@ abstract class AsyncCommand extends BukkitRunnable {
         Util.run(plugin, false, this::noPermSync);
     }
 
+    /**
+     * Parse ticket id argument, resolving provisional ids of tickets which were journaled for creation.
+     * Replies to the sender if the id can't be used.
+     *
+     * @param arg ticket id argument, e.g. 42 or P3
+     * @return ticket id or null if invalid or not yet created on GitHub
+     */
+    protected Integer parseTicketId(String arg) {
+        int id;
+        try {
+            id = Ticket.parseId(arg);
+        } catch (NumberFormatException ex) {
+            reply("Invalid ticket id!");
+            return null;
+        }
+        Integer resolvedId = ticketController.resolveTicketId(id);
+        if (resolvedId == null) {
+            reply("Ticket #" + Ticket.idToString(id) + " is still being submitted, try again shortly.");
+        }
+        return resolvedId;
+    }
+
     // Methods which must only be used in a sync context
 
     protected void replySync(String msg) {
+        long start = System.nanoTime();
         sender.sendMessage(msg);
+        metrics.record("command.reply", System.nanoTime() - start, true);
     }
 
     protected void replySync(BaseComponent[] msg) {
+        // Time spent on the main thread serializing and sending the message
+        long start = System.nanoTime();
         sender.spigot().sendMessage(msg);
+        metrics.record("command.reply", System.nanoTime() - start, true);
     }
 
     protected void noPermSync() {
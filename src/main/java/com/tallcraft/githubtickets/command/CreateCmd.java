@@ -1,5 +1,6 @@
 package com.tallcraft.githubtickets.command;
 
+import com.tallcraft.githubtickets.ticket.Ticket;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
@@ -53,9 +54,7 @@ public class CreateCmd extends AsyncCommand {
             return;
         }
 
-        reply("Ticket submitted...");
-
-        long ticketID;
+        int ticketID;
         try {
             ticketID = ticketController.createTicket((Player) sender, new Date(), message);
         } catch (IOException e) {
@@ -63,13 +62,16 @@ public class CreateCmd extends AsyncCommand {
             e.printStackTrace();
             return;
         }
-        reply(new ComponentBuilder("Created ticket #" + ticketID)
+        String hoverMsg = Ticket.isProvisionalId(ticketID)
+                ? "Your ticket gets its final number once it has been sent"
+                : "Click to show ticket";
+        reply(new ComponentBuilder("Created ticket #" + Ticket.idToString(ticketID))
                 .bold(true)
                 .color(ChatColor.GOLD)
                 .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                        new ComponentBuilder("Click to show ticket").create()))
+                        new ComponentBuilder(hoverMsg).create()))
                 .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND,
-                        "/ticket show " + ticketID))
+                        "/ticket show " + Ticket.idToString(ticketID)))
                 .create());
     }
 }
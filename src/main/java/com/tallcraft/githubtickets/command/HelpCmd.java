@@ -30,11 +30,17 @@ public class HelpCmd extends AsyncCommand {
             }
 
             if (Util.hasPerm(sender, "list")) {
-                builder.append(baseCmd + " list", f).color(ChatColor.GOLD)
+                builder.append(baseCmd + " list [Page]", f).color(ChatColor.GOLD)
                         .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket list"));
                 builder.append(" List open tickets", f).append("\n");
             }
 
+            if (Util.hasPerm(sender, "search")) {
+                builder.append(baseCmd + " search <Words>", f).color(ChatColor.GOLD)
+                        .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket search "));
+                builder.append(" Search tickets by content", f).append("\n");
+            }
+
             if (Util.hasPerm(sender, "show.self") || Util.hasPerm(sender, "show.all")) {
                 builder.append(baseCmd + " show <ID>", f).color(ChatColor.GOLD)
                         .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket show "));
@@ -53,12 +59,30 @@ public class HelpCmd extends AsyncCommand {
                 builder.append(" Close Ticket", f).append("\n");
             }
 
+            if (Util.hasPerm(sender, "close.all")) {
+                builder.append(baseCmd + " close <From-To|player:Name|server:Name>", f).color(ChatColor.GOLD)
+                        .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket close "));
+                builder.append(" Close multiple tickets", f).append("\n");
+            }
+
             if (Util.hasPerm(sender, "reopen.self") || Util.hasPerm(sender, "reopen.all")) {
                 builder.append(baseCmd + " reopen <ID>", f).color(ChatColor.GOLD)
                         .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket reopen "));
                 builder.append(" Re-open Ticket", f).append("\n");
             }
 
+            if (Util.hasPerm(sender, "reopen.all")) {
+                builder.append(baseCmd + " reopen <From-To|player:Name|server:Name>", f).color(ChatColor.GOLD)
+                        .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket reopen "));
+                builder.append(" Re-open multiple tickets", f).append("\n");
+            }
+
+            if (Util.hasPerm(sender, "stats")) {
+                builder.append(baseCmd + " stats", f).color(ChatColor.GOLD)
+                        .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/ticket stats"));
+                builder.append(" Show GitHub and cache statistics", f).append("\n");
+            }
+
             replySync(builder.create());
         });
     }
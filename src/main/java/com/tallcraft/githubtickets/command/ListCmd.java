@@ -1,51 +1,109 @@
 package com.tallcraft.githubtickets.command;
 
 import com.tallcraft.githubtickets.Util;
-import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketPage;
+import com.tallcraft.githubtickets.ticket.TicketRenderCache;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.chat.HoverEvent;
 import org.bukkit.entity.Player;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 public class ListCmd extends AsyncCommand {
 
     private static final BaseComponent[] ticketListHeading =
             new ComponentBuilder("Tickets >>>>>>").color(ChatColor.GOLD).bold(true).create();
+    private static final TicketRenderCache renderCache = TicketRenderCache.getInstance();
+
+    private final int pageSize;
+
+    ListCmd(int pageSize) {
+        this.pageSize = pageSize;
+    }
 
     @Override
     public void run() {
+        int page = 1;
+
+        // Parse optional page number
+        if (args.length >= 2) {
+            try {
+                page = Integer.parseInt(args[1]);
+            } catch (NumberFormatException ex) {
+                reply("Invalid page number!");
+                return;
+            }
+            if (page < 1) {
+                reply("Invalid page number!");
+                return;
+            }
+        }
+
+        // Players without show.all permission may only list their own tickets
+        UUID filterUUID = null;
+        if (sender instanceof Player && !hasPermSync("show.all")) {
+            filterUUID = ((Player) sender).getUniqueId();
+        }
+
         reply("Fetching ticket list ...");
-        List<Ticket> ticketList;
+        TicketPage ticketPage;
         try {
-            ticketList = ticketController.getOpenTickets();
+            ticketPage = ticketController.getTicketPage(true, filterUUID, page, pageSize);
         } catch (IOException e) {
             e.printStackTrace();
             reply("Error while fetching ticket list");
             return;
         }
+        boolean ownTickets = filterUUID != null;
+        // Render off the main thread from cached list entries
+        BaseComponent[] ticketList = renderCache.ticketListToChat(ticketPage.getTickets());
         Util.run(plugin, false, () -> {
             replySync(ticketListHeading);
-            if (sender instanceof Player && !hasPermSync("show.all")) {
-                Player player = (Player) sender;
-                List<Ticket> ticketListFiltered = ticketList.stream()
-                        .filter((ticket) -> ticket.getPlayerUUID()
-                                .equals(player.getUniqueId())).collect(Collectors.toList());
-                if (ticketListFiltered.isEmpty()) {
+            if (ticketPage.isEmpty()) {
+                if (ticketPage.hasPrevious()) {
+                    replySync("No tickets on page " + ticketPage.getPage());
+                } else if (ownTickets) {
                     replySync("You don't have any open tickets");
-                    return;
+                } else {
+                    replySync("No open tickets");
                 }
-                replySync(Ticket.ticketListToChat(ticketListFiltered));
                 return;
             }
-            if (ticketList.isEmpty()) {
-                replySync("No open tickets");
-                return;
+            replySync(ticketList);
+            if (ticketPage.hasPrevious() || ticketPage.hasNext()) {
+                replySync(getPageNavigation(ticketPage));
             }
-            replySync(Ticket.ticketListToChat(ticketList));
         });
     }
+
+    /**
+     * Generate clickable navigation for ticket list pages
+     *
+     * @param ticketPage currently shown page
+     * @return chat message with links to previous and next page
+     */
+    private BaseComponent[] getPageNavigation(TicketPage ticketPage) {
+        ComponentBuilder.FormatRetention f = ComponentBuilder.FormatRetention.NONE;
+        ComponentBuilder builder = new ComponentBuilder("");
+        int page = ticketPage.getPage();
+
+        if (ticketPage.hasPrevious()) {
+            builder.append("<< Previous", f).color(ChatColor.GOLD)
+                    .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/" + label + " list " + (page - 1)))
+                    .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+                            new ComponentBuilder("Show page " + (page - 1)).create()));
+        }
+        builder.append(" Page " + page + " ", f);
+        if (ticketPage.hasNext()) {
+            builder.append("Next >>", f).color(ChatColor.GOLD)
+                    .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/" + label + " list " + (page + 1)))
+                    .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+                            new ComponentBuilder("Show page " + (page + 1)).create()));
+        }
+        return builder.create();
+    }
 }
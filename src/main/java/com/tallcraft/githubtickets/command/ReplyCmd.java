@@ -2,6 +2,10 @@ package com.tallcraft.githubtickets.command;
 
 import com.tallcraft.githubtickets.Util;
 import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketProjection;
+import com.tallcraft.githubtickets.ticket.TicketRenderCache;
+import com.tallcraft.githubtickets.ticket.WriteResult;
+import net.md_5.bungee.api.chat.BaseComponent;
 import org.bukkit.entity.Player;
 
 import java.io.IOException;
@@ -10,6 +14,7 @@ import java.util.stream.Collectors;
 
 // TODO: Ticket body requirements
 public class ReplyCmd extends AsyncCommand {
+    private static final TicketRenderCache renderCache = TicketRenderCache.getInstance();
 
     private int minWordCount;
 
@@ -29,13 +34,9 @@ public class ReplyCmd extends AsyncCommand {
             return;
         }
 
-        int id;
-
         // Parse ticket id
-        try {
-            id = Integer.parseInt(args[1]);
-        } catch (NumberFormatException ex) {
-            reply("Invalid ticket id!");
+        Integer id = parseTicketId(args[1]);
+        if (id == null) {
             return;
         }
 
@@ -44,8 +45,8 @@ public class ReplyCmd extends AsyncCommand {
 
 
         try {
-            // Fetch ticket object by id
-            Ticket ticket = ticketController.getTicket(id);
+            // Fetch ticket without comments for the permission check, the write reuses the loaded issue
+            Ticket ticket = ticketController.getTicket(id, TicketProjection.HEADER);
             if (ticket == null) {
                 sender.sendMessage("Ticket not found by id");
                 return;
@@ -57,20 +58,25 @@ public class ReplyCmd extends AsyncCommand {
                 return;
             }
 
-            reply("Ticket reply submitted ...");
-
             Player player = (Player) sender;
 
-            // Trigger action
-            ticket = ticketController.replyTicket(id, player, message);
-            if (ticket == null) {
+            // Trigger action, the reply is sent to GitHub in the background if journaled
+            WriteResult result = ticketController.replyTicket(id, player, message);
+            if (result.isJournaled()) {
+                reply("Reply to ticket #" + id + " submitted.");
+                return;
+            }
+            Ticket updated = result.getTicket();
+            if (updated == null) {
                 reply("Ticket #" + id + " not found.");
                 return;
             }
-            Ticket finalTicket = ticket;
+            // Comments are only shown if the store holds all of them
+            BaseComponent[] chat = updated.getComments() == null ? updated.toChat(false)
+                    : renderCache.toChat(updated);
             Util.run(plugin, false, () -> {
-                if (hasTicketPermissionSync("show", sender, finalTicket)) {
-                    replySync(finalTicket.toChat());
+                if (hasTicketPermissionSync("show", sender, updated)) {
+                    replySync(chat);
                 } else {
                     replySync("Added reply for ticket #" + id);
                 }
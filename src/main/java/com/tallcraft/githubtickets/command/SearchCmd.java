@@ -0,0 +1,58 @@
+package com.tallcraft.githubtickets.command;
+
+import com.tallcraft.githubtickets.Util;
+import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketRenderCache;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class SearchCmd extends AsyncCommand {
+
+    private static final BaseComponent[] searchHeading =
+            new ComponentBuilder("Search results >>>>>>").color(ChatColor.GOLD).bold(true).create();
+    private static final TicketRenderCache renderCache = TicketRenderCache.getInstance();
+
+    private final int maxResults;
+
+    SearchCmd(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public void run() {
+        if (args.length < 2) {
+            reply("Missing search words");
+            return;
+        }
+        String query = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+
+        // Players without show.all permission may only find their own tickets
+        UUID filterUUID = null;
+        if (sender instanceof Player && !hasPermSync("show.all")) {
+            filterUUID = ((Player) sender).getUniqueId();
+        }
+
+        // Served from the local ticket store, no GitHub calls
+        List<Ticket> tickets = ticketController.searchTickets(query, filterUUID);
+        int more = tickets.size() - maxResults;
+        BaseComponent[] ticketList = renderCache.ticketListToChat(tickets.subList(0, Math.min(maxResults,
+                tickets.size())));
+        Util.run(plugin, false, () -> {
+            replySync(searchHeading);
+            if (tickets.isEmpty()) {
+                replySync("No tickets found for \"" + query + "\"");
+                return;
+            }
+            replySync(ticketList);
+            if (more > 0) {
+                replySync(ChatColor.GRAY + "" + more + " more tickets found, add words to narrow the search.");
+            }
+        });
+    }
+}
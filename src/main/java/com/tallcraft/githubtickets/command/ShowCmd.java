@@ -1,11 +1,21 @@
 package com.tallcraft.githubtickets.command;
 
 import com.tallcraft.githubtickets.Util;
+import com.tallcraft.githubtickets.ticket.CommentWindow;
 import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketRenderCache;
+import net.md_5.bungee.api.chat.BaseComponent;
 
 import java.io.IOException;
 
 public class ShowCmd extends AsyncCommand {
+    private static final TicketRenderCache renderCache = TicketRenderCache.getInstance();
+
+    private int commentCount;
+
+    ShowCmd(int commentCount) {
+        this.commentCount = commentCount;
+    }
 
     @Override
     public void run() {
@@ -14,36 +24,35 @@ public class ShowCmd extends AsyncCommand {
             return;
         }
 
-        int id;
-
         // Parse ticket id
-        try {
-            id = Integer.parseInt(args[1]);
-        } catch (NumberFormatException ex) {
-            reply("Invalid ticket id!");
+        Integer id = parseTicketId(args[1]);
+        if (id == null) {
             return;
         }
 
-        // Get ticket from GitHub by id
-        Ticket ticket = null;
+        // Get ticket with its latest comments, or older comments if a cursor was passed
+        String before = args.length > 2 ? args[2] : null;
+        CommentWindow window = null;
         try {
-            ticket = ticketController.getTicket(id);
+            window = ticketController.getCommentWindow(id, before, commentCount);
         } catch (IOException e) {
             e.printStackTrace();
             reply("Error while fetching ticket");
         }
-        if (ticket == null) {
+        if (window == null) {
             reply("Ticket not found.");
             return;
         }
-        Ticket finalTicket = ticket;
+        Ticket ticket = window.getTicket();
+        // Render off the main thread, repeated views of a ticket reuse the rendered message
+        BaseComponent[] chat = renderCache.toChat(window, "/ticket show " + id + " ");
         Util.run(plugin, false, () -> {
             // Check if player has permission to show specific ticket (own vs all perm)
-            if (!hasTicketPermissionSync("show", sender, finalTicket)) {
+            if (!hasTicketPermissionSync("show", sender, ticket)) {
                 noPermSync();
                 return;
             }
-            replySync(finalTicket.toChat());
+            replySync(chat);
             replySync("");
         });
     }
@@ -0,0 +1,32 @@
+package com.tallcraft.githubtickets.command;
+
+import com.tallcraft.githubtickets.Metrics;
+import com.tallcraft.githubtickets.github.GitHubController;
+import org.bukkit.ChatColor;
+
+import java.util.Map;
+
+public class StatsCmd extends AsyncCommand {
+
+    @Override
+    public void run() {
+        GitHubController gitHubController = GitHubController.getInstance();
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(ChatColor.GOLD).append("Ticket stats >>>>>>\n").append(ChatColor.RESET);
+        builder.append("GitHub: ").append(gitHubController.getState().name().toLowerCase());
+        int remaining = metrics.getRateLimitRemaining();
+        builder.append(", rate limit remaining: ").append(remaining < 0 ? "unknown" : Integer.toString(remaining))
+                .append("\n");
+        builder.append("HTTP cache: ").append(gitHubController.getCacheStats()).append("\n");
+        builder.append(String.format("Ticket store hit rate: %.1f%%, render cache hit rate: %.1f%%%n",
+                metrics.getTicketStoreHitRate() * 100, metrics.getRenderCacheHitRate() * 100));
+
+        for (Map.Entry<String, Metrics.OperationStats> operation : metrics.getOperations().entrySet()) {
+            builder.append(ChatColor.GOLD).append(operation.getKey()).append(ChatColor.RESET).append(": ")
+                    .append(operation.getValue()).append("\n");
+        }
+
+        reply(builder.toString().trim());
+    }
+}
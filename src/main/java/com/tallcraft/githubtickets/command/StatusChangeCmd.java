@@ -1,16 +1,26 @@
 package com.tallcraft.githubtickets.command;
 
+import com.tallcraft.githubtickets.ticket.BulkResult;
 import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketProjection;
+import com.tallcraft.githubtickets.ticket.WriteResult;
+import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class StatusChangeCmd extends AsyncCommand {
 
     private boolean newStatus;
+    private int bulkMaxTickets;
 
-    StatusChangeCmd(boolean newStatus) {
+    StatusChangeCmd(boolean newStatus, int bulkMaxTickets) {
         this.newStatus = newStatus;
+        this.bulkMaxTickets = bulkMaxTickets;
     }
 
     @Override
@@ -20,19 +30,22 @@ public class StatusChangeCmd extends AsyncCommand {
             return;
         }
 
-        int id;
+        // Range of ids, player:<name> or server:<name>
+        Predicate<Ticket> selector = parseSelector(args[1]);
+        if (selector != null) {
+            runBulk(selector);
+            return;
+        }
 
         // Parse ticket id
-        try {
-            id = Integer.parseInt(args[1]);
-        } catch (NumberFormatException ex) {
-            reply("Invalid ticket id!");
+        Integer id = parseTicketId(args[1]);
+        if (id == null) {
             return;
         }
 
         try {
-            // Fetch ticket object by id
-            Ticket ticket = ticketController.getTicket(id);
+            // Fetch ticket without comments for the permission check, the write reuses the loaded issue
+            Ticket ticket = ticketController.getTicket(id, TicketProjection.HEADER);
             if (ticket == null) {
                 sender.sendMessage("Ticket not found by id");
                 return;
@@ -44,18 +57,111 @@ public class StatusChangeCmd extends AsyncCommand {
                 return;
             }
 
-            reply("Ticket change submitted...");
-
             Player player = (Player) sender;
-            ticket = ticketController.changeTicketStatus(id, newStatus, player.getUniqueId());
-            if (ticket == null) {
+
+            // Trigger action, the change is sent to GitHub in the background if journaled
+            WriteResult result = ticketController.changeTicketStatus(id, newStatus, player.getUniqueId());
+            if (result.isNotFound()) {
                 reply("Ticket not found.");
                 return;
             }
+            if (result.isJournaled()) {
+                reply("Status change for ticket #" + id + " submitted.");
+                return;
+            }
             reply("Ticket #" + id + " " + (newStatus ? "reopened" : "closed") + ".");
         } catch (IOException e) {
             e.printStackTrace();
             reply("Error while changing ticket state");
         }
     }
+
+    /**
+     * Parse bulk selector argument
+     *
+     * @param arg selector, e.g. 10-25, player:Steve or server:survival
+     * @return filter matching the selected tickets, or null if the argument is a single ticket id
+     */
+    private Predicate<Ticket> parseSelector(String arg) {
+        String lowerArg = arg.toLowerCase();
+        if (lowerArg.startsWith("player:")) {
+            String playerName = arg.substring("player:".length());
+            return ticket -> playerName.equalsIgnoreCase(ticket.getPlayerName());
+        }
+        if (lowerArg.startsWith("server:")) {
+            String serverName = arg.substring("server:".length());
+            return ticket -> serverName.equalsIgnoreCase(ticket.getServerName());
+        }
+        int separator = arg.indexOf('-');
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            int from = Integer.parseInt(arg.substring(0, separator));
+            int to = Integer.parseInt(arg.substring(separator + 1));
+            return ticket -> ticket.getId() >= Math.min(from, to) && ticket.getId() <= Math.max(from, to);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Change status of all tickets matching the selector, only tickets which don't have the new status yet
+     * are selected so running the command again retries failed ones
+     */
+    private void runBulk(Predicate<Ticket> selector) {
+        if (!hasPermSync(newStatus ? "reopen.all" : "close.all")) {
+            noPerm();
+            return;
+        }
+        String action = newStatus ? "reopen" : "close";
+
+        List<Integer> ids;
+        try {
+            ids = ticketController.getTickets(true, true, !newStatus, null, false).stream()
+                    .filter(selector).map(Ticket::getId).collect(Collectors.toList());
+        } catch (IOException e) {
+            e.printStackTrace();
+            reply("Error while fetching tickets");
+            return;
+        }
+        if (ids.isEmpty()) {
+            reply("No " + (newStatus ? "closed" : "open") + " tickets match " + args[1] + ".");
+            return;
+        }
+        if (ids.size() > bulkMaxTickets) {
+            reply(ChatColor.RED + "" + ids.size() + " tickets match " + args[1] + ", at most " + bulkMaxTickets
+                    + " can be " + action + "d at once.");
+            return;
+        }
+
+        reply(ChatColor.GRAY + (newStatus ? "Reopening " : "Closing ") + ids.size() + " tickets...");
+        UUID actor = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        ticketController.changeTicketStatusBulk(ids, newStatus, actor).whenComplete((result, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+                reply("Error while changing ticket state");
+                return;
+            }
+            reply(summary(result));
+        });
+    }
+
+    private String summary(BulkResult result) {
+        StringBuilder summary = new StringBuilder()
+                .append(result.getChanged().size()).append(" tickets ").append(newStatus ? "reopened" : "closed")
+                .append(".");
+        if (!result.getNotFound().isEmpty()) {
+            summary.append(" Not found: ").append(idList(result.getNotFound())).append(".");
+        }
+        if (!result.getFailed().isEmpty()) {
+            summary.append(ChatColor.RED).append(" Failed: ").append(idList(result.getFailed()))
+                    .append(", run the command again to retry.");
+        }
+        return summary.toString();
+    }
+
+    private static String idList(List<Integer> ids) {
+        return ids.stream().map(id -> "#" + id).collect(Collectors.joining(", "));
+    }
 }
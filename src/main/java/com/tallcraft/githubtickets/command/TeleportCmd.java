@@ -2,6 +2,7 @@ package com.tallcraft.githubtickets.command;
 
 import com.tallcraft.githubtickets.Util;
 import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketProjection;
 import io.papermc.lib.PaperLib;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -27,21 +28,17 @@ public class TeleportCmd extends AsyncCommand {
         // Cast to player so we can teleport
         Player player = (Player) sender;
 
-        int id;
-
         // Parse ticket id
-        try {
-            id = Integer.parseInt(args[1]);
-        } catch (NumberFormatException ex) {
-            reply("Invalid ticket id!");
+        Integer id = parseTicketId(args[1]);
+        if (id == null) {
             return;
         }
 
         Ticket ticket;
 
-        // Get ticket from GitHub by id
+        // Get ticket from GitHub by id, only the location is needed
         try {
-            ticket = ticketController.getTicket(id);
+            ticket = ticketController.getTicket(id, TicketProjection.HEADER);
         } catch (IOException e) {
             e.printStackTrace();
             reply("Error while fetching ticket");
@@ -1,20 +1,33 @@
 package com.tallcraft.githubtickets.command;
 
 import com.tallcraft.githubtickets.GithubTickets;
+import com.tallcraft.githubtickets.Metrics;
 import com.tallcraft.githubtickets.Util;
+import com.tallcraft.githubtickets.github.GitHubController;
+import com.tallcraft.githubtickets.ticket.TicketController;
+import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 
 public class TicketCommandExecutor implements CommandExecutor {
+    private static final GitHubController gitHubController = GitHubController.getInstance();
+    private static final Metrics metrics = Metrics.getInstance();
 
     private GithubTickets plugin;
 
     private int minWordCount;
+    private int listPageSize;
+    private int showCommentCount;
+    private int bulkMaxTickets;
 
-    public TicketCommandExecutor(GithubTickets plugin, int minWordCount) {
+    public TicketCommandExecutor(GithubTickets plugin, int minWordCount, int listPageSize, int showCommentCount,
+                                 int bulkMaxTickets) {
         this.plugin = plugin;
         this.minWordCount = minWordCount;
+        this.listPageSize = listPageSize;
+        this.showCommentCount = showCommentCount;
+        this.bulkMaxTickets = bulkMaxTickets;
     }
 
 
@@ -56,7 +69,7 @@ public class TicketCommandExecutor implements CommandExecutor {
                 case "show":
                     if (!Util.hasPerm(sender, "show.self") && !Util.hasPerm(sender, "show.all"))
                         return noPerm(sender, command);
-                    cmd = new ShowCmd();
+                    cmd = new ShowCmd(showCommentCount);
                     break;
                 case "tp":
                     if (!Util.hasPerm(sender, "tp")) return noPerm(sender, command);
@@ -73,18 +86,26 @@ public class TicketCommandExecutor implements CommandExecutor {
                     break;
                 case "list":
                     if (!Util.hasPerm(sender, "list")) return noPerm(sender, command);
-                    cmd = new ListCmd();
+                    cmd = new ListCmd(listPageSize);
                     break;
                 case "close":
                     if (!Util.hasPerm(sender, "close.self") && !Util.hasPerm(sender, "close.all"))
                         return noPerm(sender, command);
-                    cmd = new StatusChangeCmd(false);
+                    cmd = new StatusChangeCmd(false, bulkMaxTickets);
                     break;
                 case "reopen":
                     if (!Util.hasPerm(sender, "reopen.self")
                             && !Util.hasPerm(sender, "reopen.all"))
                         return noPerm(sender, command);
-                    cmd = new StatusChangeCmd(true);
+                    cmd = new StatusChangeCmd(true, bulkMaxTickets);
+                    break;
+                case "search":
+                    if (!Util.hasPerm(sender, "search")) return noPerm(sender, command);
+                    cmd = new SearchCmd(listPageSize);
+                    break;
+                case "stats":
+                    if (!Util.hasPerm(sender, "stats")) return noPerm(sender, command);
+                    cmd = new StatsCmd();
                     break;
                 default:
                     cmd = new HelpCmd();
@@ -92,8 +113,51 @@ public class TicketCommandExecutor implements CommandExecutor {
         }
 
         cmd.init(plugin, this, sender, command, label, args);
-        cmd.runTaskAsynchronously(plugin);
+        Runnable timedCmd = timed(cmd instanceof HelpCmd ? "help" : args[0].toLowerCase(), cmd);
+
+        // Help, stats and search don't need GitHub, everything else waits for the connection
+        GitHubController.State state = gitHubController.getState();
+        if (!(cmd instanceof HelpCmd) && !(cmd instanceof StatsCmd) && !(cmd instanceof SearchCmd)
+                && state != GitHubController.State.CONNECTED) {
+            if (state != GitHubController.State.CONNECTING) {
+                sender.sendMessage(ChatColor.RED + "Tickets are currently unavailable, please try again later.");
+                return true;
+            }
+            sender.sendMessage(ChatColor.GRAY + "Connecting to GitHub, your command will run shortly.");
+            AsyncCommand queuedCmd = cmd;
+            gitHubController.whenReady().whenCompleteAsync((result, ex) -> {
+                if (ex == null) {
+                    timedCmd.run();
+                } else {
+                    queuedCmd.reply(ChatColor.RED + "Tickets are currently unavailable, please try again later.");
+                }
+            }, TicketController.getInstance().getExecutor());
+            return true;
+        }
+
+        // Commands block on GitHub I/O, run them on the dedicated executor instead of the Bukkit async pool
+        TicketController.getInstance().getExecutor().execute(timedCmd);
 
         return true;
     }
+
+    /**
+     * Wrap command to record its run time, which includes GitHub calls and rendering off the main thread
+     *
+     * @param name subcommand name
+     * @param cmd  command to wrap
+     * @return timed command
+     */
+    private static Runnable timed(String name, AsyncCommand cmd) {
+        return () -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                cmd.run();
+                success = true;
+            } finally {
+                metrics.record("command." + name, System.nanoTime() - start, success);
+            }
+        };
+    }
 }
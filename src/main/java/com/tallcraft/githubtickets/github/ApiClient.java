@@ -0,0 +1,158 @@
+package com.tallcraft.githubtickets.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Minimal client for GitHub API requests not covered by the GitHub library.
+ * Shares the OkHttp client (and its cache) with the library connector.
+ */
+class ApiClient {
+    private static final MediaType jsonType = MediaType.get("application/json; charset=utf-8");
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final OkHttpClient httpClient;
+    private final String endpoint;
+    private final String authorization;
+
+    /**
+     * @param httpClient    client to send requests with
+     * @param endpoint      API base url, e.g. https://api.github.com
+     * @param authorization value of the Authorization header
+     */
+    ApiClient(OkHttpClient httpClient, String endpoint, String authorization) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.authorization = authorization;
+    }
+
+    static ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Build url for an API path
+     *
+     * @param path  path relative to the API endpoint, e.g. repos/user/name/issues
+     * @param query query parameters, may be null
+     * @return absolute url
+     */
+    HttpUrl url(String path, Map<String, String> query) {
+        HttpUrl url = HttpUrl.get(endpoint + "/" + path);
+        if (query == null || query.isEmpty()) {
+            return url;
+        }
+        HttpUrl.Builder builder = url.newBuilder();
+        query.forEach(builder::addQueryParameter);
+        return builder.build();
+    }
+
+    /**
+     * Get url of the GraphQL API, which lives next to the REST API
+     *
+     * @return absolute url, e.g. https://api.github.com/graphql or https://host/api/graphql for GitHub Enterprise
+     */
+    HttpUrl graphqlUrl() {
+        if (endpoint.endsWith("/api/v3")) {
+            return HttpUrl.get(endpoint.substring(0, endpoint.length() - "/v3".length()) + "/graphql");
+        }
+        return HttpUrl.get(endpoint + "/graphql");
+    }
+
+    /**
+     * Send GET request
+     *
+     * @param url absolute url, e.g. from {@link #url(String, Map)} or a pagination link
+     * @return parsed response
+     * @throws FileNotFoundException if the resource does not exist
+     * @throws IOException           on API or network error
+     */
+    ApiResponse get(HttpUrl url) throws IOException {
+        return execute(newRequest(url).get().build());
+    }
+
+    /**
+     * Send request with JSON body
+     *
+     * @param method HTTP method, e.g. POST or PATCH
+     * @param url    absolute url
+     * @param body   object to serialize as request body
+     * @return parsed response
+     * @throws IOException on API or network error
+     */
+    ApiResponse send(String method, HttpUrl url, Object body) throws IOException {
+        RequestBody requestBody = RequestBody.create(jsonType, mapper.writeValueAsString(body));
+        return execute(newRequest(url).method(method, requestBody).build());
+    }
+
+    private Request.Builder newRequest(HttpUrl url) {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .header("Accept", "application/vnd.github.v3+json");
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder;
+    }
+
+    private ApiResponse execute(Request request) throws IOException {
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() == 404) {
+                throw new FileNotFoundException(request.url().toString());
+            }
+            ResponseBody responseBody = response.body();
+            String content = responseBody == null ? "" : responseBody.string();
+            if (!response.isSuccessful()) {
+                throw new IOException("GitHub API error " + response.code() + " for " + request.url() + ": " + content);
+            }
+            JsonNode json = content.isEmpty() ? null : mapper.readTree(content);
+            return new ApiResponse(json, getNextLink(response.header("Link")));
+        }
+    }
+
+    /**
+     * Extract url of next page from Link header
+     *
+     * @param link Link header value, e.g. &lt;https://...&gt;; rel="next", &lt;https://...&gt;; rel="last"
+     * @return url of next page or null if there is none
+     */
+    private static HttpUrl getNextLink(String link) {
+        if (link == null) {
+            return null;
+        }
+        for (String part : link.split(",")) {
+            int start = part.indexOf('<');
+            int end = part.indexOf('>');
+            if (start >= 0 && end > start && part.substring(end).contains("rel=\"next\"")) {
+                return HttpUrl.parse(part.substring(start + 1, end));
+            }
+        }
+        return null;
+    }
+
+    static class ApiResponse {
+        private final JsonNode body;
+        private final HttpUrl next;
+
+        private ApiResponse(JsonNode body, HttpUrl next) {
+            this.body = body;
+            this.next = next;
+        }
+
+        JsonNode getBody() {
+            return body;
+        }
+
+        /**
+         * @return url of the next result page or null if this is the last page
+         */
+        HttpUrl getNext() {
+            return next;
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package com.tallcraft.githubtickets.github;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.tallcraft.githubtickets.Metrics;
+import com.tallcraft.githubtickets.ticket.CommentWindow;
 import com.tallcraft.githubtickets.ticket.Ticket;
 import com.tallcraft.githubtickets.ticket.TicketComment;
+import com.tallcraft.githubtickets.ticket.TicketPage;
+import com.tallcraft.githubtickets.ticket.TicketProjection;
 import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import org.kohsuke.github.*;
 import org.kohsuke.github.extras.okhttp3.OkHttpConnector;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Date;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -20,6 +33,7 @@ public class GitHubController {
     private static GitHubController ourInstance = new GitHubController();
 
     private static IssueConverter issueConverter = IssueConverter.getInstance();
+    private static final Metrics metrics = Metrics.getInstance();
 
 
     // Either user/password or OAuth is needed for GitHub auth
@@ -27,11 +41,54 @@ public class GitHubController {
     private String password;
     private String oauth;
 
+    // API base url, can point to a GitHub Enterprise instance
+    private String endpoint = "https://api.github.com";
+
     private GitHub client;
     private GHRepository repository;
+    // Login of the authenticated account, null if unknown
+    private String selfLogin;
+
+    // Client for requests not covered by the GitHub library and path of the repository API
+    private ApiClient apiClient;
+    private String repositoryPath;
+
+    // Fetch issues with comments in one GraphQL query instead of one REST request per issue
+    private boolean useGraphQL = true;
+    private GraphQLIssueFetcher graphQLFetcher;
+
+    // Concurrent identical reads share one request
+    private final SingleFlight<String, Ticket> ticketFlights = new SingleFlight<>();
+    private final SingleFlight<String, List<Ticket>> listFlights = new SingleFlight<>();
+    private final SingleFlight<String, TicketPage> pageFlights = new SingleFlight<>();
+
+    // Recently loaded issues by number, writes reuse them instead of fetching the issue again
+    private static final int maxIssueHandles = 256;
+    private static final long issueHandleMaxAge = 60 * 1000;
+    private final Map<Integer, IssueHandle> issueHandles = new LinkedHashMap<Integer, IssueHandle>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, IssueHandle> eldest) {
+            return size() > maxIssueHandles;
+        }
+    };
+
+    // HTTP response cache, in the working directory unless configured
+    private File cacheDirectory = new File("cache");
+    private long cacheSize = 10 * 1024 * 1024;
+    private Cache cache;
+    private final HttpCacheStats cacheStats = new HttpCacheStats();
+
+    // Paces all requests sent through the shared HTTP client
+    private final RequestScheduler scheduler = new RequestScheduler();
+
+    /**
+     * State of the API connection
+     */
+    public enum State {DISCONNECTED, CONNECTING, CONNECTED, FAILED}
 
-    // Boolean to store current api connection state
-    private boolean isConnected = false;
+    private volatile State state = State.DISCONNECTED;
+    // Completed once connected, exceptionally if connecting failed
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
 
     public static GitHubController getInstance() {
         return ourInstance;
@@ -45,8 +102,41 @@ public class GitHubController {
      * @throws IOException If an error occurs while establishing api connection
      */
     public void connect(String repositoryUser, String repositoryName) throws IOException {
-        assert (!isConnected);
+        assert (state == State.DISCONNECTED || state == State.CONNECTING);
+        state = State.CONNECTING;
+        try {
+            doConnect(repositoryUser, repositoryName);
+        } catch (IOException | RuntimeException ex) {
+            state = State.FAILED;
+            ready.completeExceptionally(ex);
+            throw ex;
+        }
+        state = State.CONNECTED;
+        ready.complete(null);
+    }
 
+    /**
+     * Connect to GitHub API without blocking the caller
+     *
+     * @param repositoryUser Issue Repository Owner
+     * @param repositoryName Issue Repository Name
+     * @param executor       executor to connect on
+     * @return future completed once connected, or exceptionally with the connection error
+     */
+    public CompletableFuture<Void> connectAsync(String repositoryUser, String repositoryName, Executor executor) {
+        assert (state == State.DISCONNECTED);
+        state = State.CONNECTING;
+        executor.execute(() -> {
+            try {
+                connect(repositoryUser, repositoryName);
+            } catch (IOException | RuntimeException ex) {
+                // Passed on through the returned future
+            }
+        });
+        return whenReady();
+    }
+
+    private void doConnect(String repositoryUser, String repositoryName) throws IOException {
         if (repositoryUser == null || repositoryUser.isEmpty()) {
             throw new IllegalArgumentException("'repositoryUser' must not be empty");
         }
@@ -54,16 +144,26 @@ public class GitHubController {
             throw new IllegalArgumentException("'repositoryName' must not be empty");
         }
 
-        Cache cache = new Cache(new File("cache"), 10 * 1024 * 1024);
-        OkHttpClient httpClient = (new okhttp3.OkHttpClient.Builder()).cache(cache).build();
+        cache = new Cache(cacheDirectory, cacheSize);
+        OkHttpClient httpClient = (new okhttp3.OkHttpClient.Builder()).cache(cache)
+                .addInterceptor(cacheStats.getCountingInterceptor())
+                .addInterceptor(scheduler.getSchedulingInterceptor())
+                .addInterceptor(getRevalidatingInterceptor())
+                .addNetworkInterceptor(scheduler.getQuotaInterceptor())
+                .build();
         OkHttpConnector connector = new OkHttpConnector(httpClient);
-        GitHubBuilder builder = new GitHubBuilder().withConnector(connector);
+        // The scheduler handles the rate limit, don't block threads until the quota resets
+        GitHubBuilder builder = new GitHubBuilder().withConnector(connector).withEndpoint(endpoint)
+                .withRateLimitHandler(RateLimitHandler.FAIL);
+        String authorization;
 
         // Initialize GitHubController client
         if (oauth != null && !oauth.isEmpty()) {
             builder = builder.withOAuthToken(oauth);
+            authorization = "token " + oauth;
         } else if (user != null && password != null && !user.isEmpty() && !password.isEmpty()) {
             builder = builder.withPassword(user, password);
+            authorization = Credentials.basic(user, password);
         } else {
             throw new IllegalArgumentException("No credentials set");
         }
@@ -81,12 +181,143 @@ public class GitHubController {
                     .create();
         }
 
-        // Set api connection status flag
-        isConnected = true;
+        try {
+            selfLogin = client.getMyself().getLogin();
+        } catch (IOException ex) {
+            // Tokens not bound to a user can't query it
+            selfLogin = null;
+        }
+
+        apiClient = new ApiClient(httpClient, endpoint, authorization);
+        repositoryPath = "repos/" + repository.getFullName();
+        String[] fullName = repository.getFullName().split("/", 2);
+        graphQLFetcher = new GraphQLIssueFetcher(apiClient, issueConverter, fullName[0], fullName[1]);
     }
 
     public boolean isConnected() {
-        return isConnected;
+        return state == State.CONNECTED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Get future which completes once connected
+     *
+     * @return future completed once connected, or exceptionally if connecting failed
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready.copy();
+    }
+
+    /**
+     * Get login of the account the plugin acts as
+     *
+     * @return GitHub login or null if unknown
+     */
+    public String getSelfLogin() {
+        return selfLogin;
+    }
+
+    /**
+     * Interceptor which makes issue and comment reads revalidate cached responses.
+     * GitHub allows caching them for 60 seconds, instead every read sends a conditional request (ETag / If-Modified-Since).
+     * Unchanged resources are answered with 304 Not Modified, which doesn't count against the rate limit.
+     *
+     * @return application interceptor
+     */
+    private static Interceptor getRevalidatingInterceptor() {
+        CacheControl revalidate = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+        return chain -> {
+            Request request = chain.request();
+            if ("GET".equals(request.method()) && request.url().encodedPath().contains("/issues")) {
+                request = request.newBuilder().cacheControl(revalidate).build();
+            }
+            return chain.proceed(request);
+        };
+    }
+
+    /**
+     * Set location and size of the HTTP response cache
+     *
+     * @param cacheDirectory directory to store cached responses in
+     * @param cacheSize      max size in bytes
+     */
+    public void setCache(File cacheDirectory, long cacheSize) {
+        assert (state == State.DISCONNECTED);
+        this.cacheDirectory = cacheDirectory;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Get hit, revalidation and miss counters of the HTTP response cache
+     *
+     * @return cache statistics
+     */
+    public HttpCacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * Get current size of the HTTP response cache
+     *
+     * @return size in bytes or -1 if not connected
+     */
+    public long getCacheSize() {
+        if (cache == null) {
+            return -1;
+        }
+        try {
+            return cache.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get scheduler which paces requests to GitHub
+     *
+     * @return request scheduler
+     */
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Run operation as background work. Its requests yield to interactive requests
+     * and are shed if the rate limit quota runs low.
+     *
+     * @param request operation calling this controller
+     * @return result of the operation
+     * @throws RequestScheduler.RequestDeferredException if the operation was shed
+     * @throws IOException                               API error
+     */
+    public <T> T runInBackground(RequestScheduler.Request<T> request) throws IOException {
+        return scheduler.call(RequestScheduler.RequestPriority.BACKGROUND, request);
+    }
+
+    /**
+     * Set API base url
+     *
+     * @param endpoint API base url, e.g. https://api.github.com
+     */
+    public void setEndpoint(String endpoint) {
+        assert (state == State.DISCONNECTED);
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Enable or disable the GraphQL API for fetching tickets including comments
+     *
+     * @param useGraphQL true to use GraphQL, false to only use the REST API
+     */
+    public void setUseGraphQL(boolean useGraphQL) {
+        this.useGraphQL = useGraphQL;
+    }
+
+    public boolean isUsingGraphQL() {
+        return useGraphQL;
     }
 
     /**
@@ -95,7 +326,7 @@ public class GitHubController {
      * @param oauth token
      */
     public void setOauth(String oauth) {
-        assert (!isConnected && user == null && password == null);
+        assert (state == State.DISCONNECTED && user == null && password == null);
         this.oauth = oauth;
     }
 
@@ -106,13 +337,13 @@ public class GitHubController {
      * @param password GitHub password
      */
     public void setCredentials(String user, String password) {
-        assert (!isConnected && oauth == null);
+        assert (state == State.DISCONNECTED && oauth == null);
         this.user = user;
         this.password = password;
     }
 
     public String getRateLimitInfo() {
-        if (!isConnected || client == null) {
+        if (!isConnected() || client == null) {
             return null;
         }
         GHRateLimit rateLimit;
@@ -135,9 +366,11 @@ public class GitHubController {
      * @throws IOException API error
      */
     public Ticket changeTicketStatus(int id, boolean open) throws IOException {
-        GHIssue issue;
+        return metrics.time(open ? "github.reopen" : "github.close", () -> doChangeTicketStatus(id, open));
+    }
 
-        issue = repository.getIssue(id);
+    private Ticket doChangeTicketStatus(int id, boolean open) throws IOException {
+        GHIssue issue = getIssueHandle(id);
         if (issue == null) {
             return null;
         }
@@ -160,13 +393,14 @@ public class GitHubController {
      * @throws IOException If an error occurs during api communication
      */
     public Ticket createTicket(Ticket ticket) throws IOException {
-        if (!isConnected) {
+        if (!isConnected()) {
             throw new RuntimeException("Not connected to GitHub");
         }
 
         // Convert to issue object and push to repo
-        GHIssue issue = issueConverter.ticketToIssue(repository, ticket);
+        GHIssue issue = metrics.time("github.createIssue", () -> issueConverter.ticketToIssue(repository, ticket));
         ticket.setId(issue.getNumber());
+        putIssueHandle(issue.getNumber(), issue);
         return ticket;
     }
 
@@ -175,17 +409,16 @@ public class GitHubController {
      *
      * @param id      Ticket number
      * @param comment comment to add to ticket
-     * @return modified ticket or null if ticket id not found
+     * @return modified ticket *without* comments or null if ticket id not found
      * @throws IOException If an error occurs during api communication
      */
     public Ticket addTicketComment(int id, TicketComment comment) throws IOException {
+        return metrics.time("github.comment", () -> doAddTicketComment(id, comment));
+    }
+
+    private Ticket doAddTicketComment(int id, TicketComment comment) throws IOException {
         String commentStr = issueConverter.ticketCommentToIssueCommentStr(comment);
-        GHIssue issue;
-        try {
-            issue = this.repository.getIssue(id);
-        } catch (GHFileNotFoundException ex) {
-            return null;
-        }
+        GHIssue issue = getIssueHandle(id);
         if (issue == null) {
             return null;
         }
@@ -193,9 +426,9 @@ public class GitHubController {
 
         // While fetching the ticket again from the API would give us more accurate data,
         // we'd have to make another API call, which is costly.
-        // Mock the timestamp and return the ticket.
+        // Mock the timestamp and return the ticket, callers append the comment to cached comments.
         comment.setTimestamp(new Date());
-        return issueConverter.issueToTicket(issue, true);
+        return issueConverter.issueToTicket(issue, false);
     }
 
 
@@ -207,12 +440,98 @@ public class GitHubController {
      * @throws IOException If an error occurs during api communication
      */
     public Ticket getTicket(int id) throws IOException {
+        return getTicket(id, TicketProjection.FULL);
+    }
+
+    /**
+     * Get part of a ticket by id. Loading the header over REST keeps the issue handle,
+     * so a following write to the ticket doesn't fetch the issue again.
+     *
+     * @param id         ID to query for
+     * @param projection part of the ticket to fetch
+     * @return Ticket with the comments of the projection or null if not found
+     * @throws IOException If an error occurs during api communication
+     */
+    public Ticket getTicket(int id, TicketProjection projection) throws IOException {
+        return ticketFlights.run(id + ":" + projection,
+                () -> metrics.time("github.getIssue", () -> fetchTicket(id, projection)));
+    }
+
+    private Ticket fetchTicket(int id, TicketProjection projection) throws IOException {
+        if (useGraphQL && projection.isFull()) {
+            // Issue and comments in a single request
+            return graphQLFetcher.getTicket(id);
+        }
+        if (useGraphQL && projection.includesComments()) {
+            return graphQLFetcher.getTicket(id, projection.getCommentLimit());
+        }
+        Ticket ticket = issueConverter.issueToTicket(loadIssue(id), projection.includesComments());
+        if (ticket == null || projection.isFull() || !projection.includesComments()) {
+            return ticket;
+        }
+        // REST can't list the latest comments without knowing the comment count
+        return ticket.withLatestComments(projection.getCommentLimit());
+    }
+
+    /**
+     * Get ticket with a window of its comments in one GraphQL query, see {@link #isUsingGraphQL()}
+     *
+     * @param id     Ticket ID
+     * @param size   max number of comments, at most 100
+     * @param before GraphQL cursor of the comment after the window, null for the latest comments
+     * @return window with GraphQL cursors or null if not found
+     * @throws IOException If an error occurs during api communication
+     */
+    public CommentWindow getCommentWindow(int id, int size, String before) throws IOException {
+        if (!useGraphQL) {
+            throw new IllegalStateException("Comment windows need the GraphQL API");
+        }
+        return metrics.time("github.getIssue", () -> graphQLFetcher.getCommentWindow(id, size, before));
+    }
+
+    /**
+     * Get issue to write to, reusing a recently loaded issue
+     *
+     * @param id issue number
+     * @return issue or null if not found
+     * @throws IOException API error
+     */
+    private GHIssue getIssueHandle(int id) throws IOException {
+        synchronized (issueHandles) {
+            IssueHandle handle = issueHandles.get(id);
+            if (handle != null && System.currentTimeMillis() - handle.loadedAt <= issueHandleMaxAge) {
+                return handle.issue;
+            }
+        }
+        return loadIssue(id);
+    }
+
+    /**
+     * Fetch issue and keep it for following writes
+     *
+     * @param id issue number
+     * @return issue or null if not found
+     * @throws IOException API error
+     */
+    private GHIssue loadIssue(int id) throws IOException {
+        GHIssue issue;
         try {
-            return issueConverter.issueToTicket(repository.getIssue(id), true);
+            issue = repository.getIssue(id);
         } catch (GHFileNotFoundException ex) {
-            return null;
+            issue = null;
         }
+        putIssueHandle(id, issue);
+        return issue;
+    }
 
+    private void putIssueHandle(int id, GHIssue issue) {
+        synchronized (issueHandles) {
+            if (issue == null) {
+                issueHandles.remove(id);
+            } else {
+                issueHandles.put(id, new IssueHandle(issue));
+            }
+        }
     }
 
 
@@ -240,6 +559,16 @@ public class GitHubController {
      * @throws IOException API error
      */
     public List<Ticket> getTickets(boolean filterState, boolean includeComments) throws IOException {
+        String key = (filterState ? "open" : "closed") + (includeComments ? ":comments" : "");
+        // Copy, callers may modify the shared list
+        return new ArrayList<>(listFlights.run(key,
+                () -> metrics.time("github.getIssues", () -> fetchTickets(filterState, includeComments))));
+    }
+
+    private List<Ticket> fetchTickets(boolean filterState, boolean includeComments) throws IOException {
+        if (includeComments && useGraphQL) {
+            return graphQLFetcher.getTickets(true, filterState);
+        }
         GHIssueState state = filterState ? GHIssueState.OPEN : GHIssueState.CLOSED;
         return issueConverter.issueToTicket(repository.getIssues(state), includeComments);
     }
@@ -251,6 +580,101 @@ public class GitHubController {
      * @throws IOException API error
      */
     public List<Ticket> getTickets(boolean includeComments) throws IOException {
+        String key = "all" + (includeComments ? ":comments" : "");
+        return new ArrayList<>(listFlights.run(key,
+                () -> metrics.time("github.getIssues", () -> fetchTickets(includeComments))));
+    }
+
+    private List<Ticket> fetchTickets(boolean includeComments) throws IOException {
+        if (includeComments && useGraphQL) {
+            return graphQLFetcher.getTickets(false, false);
+        }
         return issueConverter.issueToTicket(repository.getIssues(GHIssueState.ALL), includeComments);
     }
+
+    /**
+     * Get one page of tickets, newest first. Only requests and converts issues of this page.
+     *
+     * @param filterState ticket open state to filter for, true = open, false = closed
+     * @param page        Page number, starting at 1
+     * @param pageSize    Number of tickets per page, at most 100
+     * @return page of tickets *without* comments
+     * @throws IOException API error
+     */
+    public TicketPage getTicketPage(boolean filterState, int page, int pageSize) throws IOException {
+        if (!isConnected()) {
+            throw new RuntimeException("Not connected to GitHub");
+        }
+        String key = (filterState ? "open" : "closed") + ":" + page + ":" + pageSize;
+        return pageFlights.run(key,
+                () -> metrics.time("github.getIssues", () -> fetchTicketPage(filterState, page, pageSize)));
+    }
+
+    private TicketPage fetchTicketPage(boolean filterState, int page, int pageSize) throws IOException {
+        Map<String, String> query = new LinkedHashMap<>();
+        query.put("state", filterState ? "open" : "closed");
+        query.put("sort", "created");
+        query.put("direction", "desc");
+        query.put("per_page", Integer.toString(pageSize));
+        query.put("page", Integer.toString(page));
+
+        ApiClient.ApiResponse response = apiClient.get(apiClient.url(repositoryPath + "/issues", query));
+        List<Ticket> tickets = new ArrayList<>(pageSize);
+        for (JsonNode issue : response.getBody()) {
+            Ticket ticket = issueConverter.jsonToTicket(issue);
+            if (ticket != null) tickets.add(ticket);
+        }
+        return new TicketPage(tickets, page, response.getNext() != null);
+    }
+
+    /**
+     * Get all tickets which were updated at or after a point in time, including closed ones.
+     * Follows pagination, so the result is complete.
+     *
+     * @param since only return tickets updated at or after this time, null for all tickets
+     * @return list of updated tickets *without* comments, ordered by update time ascending
+     * @throws RequestScheduler.RequestDeferredException if the request quota runs low
+     * @throws IOException                               API error
+     */
+    public List<Ticket> getTicketsUpdatedSince(Date since) throws IOException {
+        if (!isConnected()) {
+            throw new RuntimeException("Not connected to GitHub");
+        }
+        return runInBackground(() -> metrics.time("github.getIssues", () -> fetchTicketsUpdatedSince(since)));
+    }
+
+    private List<Ticket> fetchTicketsUpdatedSince(Date since) throws IOException {
+        Map<String, String> query = new LinkedHashMap<>();
+        query.put("state", "all");
+        query.put("sort", "updated");
+        query.put("direction", "asc");
+        query.put("per_page", "100");
+        if (since != null) {
+            query.put("since", since.toInstant().truncatedTo(ChronoUnit.SECONDS).toString());
+        }
+
+        List<Ticket> tickets = new ArrayList<>();
+        HttpUrl url = apiClient.url(repositoryPath + "/issues", query);
+        while (url != null) {
+            ApiClient.ApiResponse response = apiClient.get(url);
+            for (JsonNode issue : response.getBody()) {
+                Ticket ticket = issueConverter.jsonToTicket(issue);
+                if (ticket != null) tickets.add(ticket);
+            }
+            url = response.getNext();
+        }
+        return tickets;
+    }
+
+    /**
+     * Issue object of the GitHub library, which holds the issue url for writes
+     */
+    private static class IssueHandle {
+        private final GHIssue issue;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private IssueHandle(GHIssue issue) {
+            this.issue = issue;
+        }
+    }
 }
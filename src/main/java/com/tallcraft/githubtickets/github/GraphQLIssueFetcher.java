@@ -0,0 +1,256 @@
+package com.tallcraft.githubtickets.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tallcraft.githubtickets.ticket.CommentWindow;
+import com.tallcraft.githubtickets.ticket.Ticket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetches issues together with their comments from the GitHub GraphQL API.
+ * One query returns a whole page of issues including comments, instead of one REST request per issue.
+ */
+class GraphQLIssueFetcher {
+    // GraphQL connections are limited to 100 nodes per page
+    private static final int pageSize = 100;
+
+    private static final String issueFields = "number state body createdAt updatedAt";
+    private static final String commentConnection =
+            "totalCount pageInfo { hasNextPage endCursor } nodes { body createdAt author { login ... on User { name } } }";
+
+    private static final String issuesQuery = "query($owner: String!, $name: String!, $states: [IssueState!], $after: String) {"
+            + " repository(owner: $owner, name: $name) {"
+            + " issues(first: " + pageSize + ", after: $after, states: $states, orderBy: {field: CREATED_AT, direction: DESC}) {"
+            + " pageInfo { hasNextPage endCursor }"
+            + " nodes { " + issueFields + " comments(first: " + pageSize + ") { " + commentConnection + " } } } } }";
+
+    private static final String issueQuery = "query($owner: String!, $name: String!, $number: Int!) {"
+            + " repository(owner: $owner, name: $name) {"
+            + " issue(number: $number) { " + issueFields
+            + " comments(first: " + pageSize + ") { " + commentConnection + " } } } }";
+
+    // Latest comments, or the ones before a cursor when paging back
+    private static final String windowConnection =
+            "totalCount pageInfo { hasPreviousPage startCursor } nodes { body createdAt author { login ... on User { name } } }";
+    private static final String windowQuery = "query($owner: String!, $name: String!, $number: Int!, $count: Int!, $before: String) {"
+            + " repository(owner: $owner, name: $name) {"
+            + " issue(number: $number) { " + issueFields
+            + " comments(last: $count, before: $before) { " + windowConnection + " } } } }";
+
+    private static final String commentsQuery = "query($owner: String!, $name: String!, $number: Int!, $after: String) {"
+            + " repository(owner: $owner, name: $name) {"
+            + " issue(number: $number) { comments(first: " + pageSize + ", after: $after) { " + commentConnection + " } } } }";
+
+    // Issues with many comments need follow-up queries, shared by concurrent fetches of the same issue
+    private final SingleFlight<String, List<JsonNode>> commentFlights = new SingleFlight<>();
+
+    private final ApiClient apiClient;
+    private final IssueConverter issueConverter;
+    private final String owner;
+    private final String name;
+
+    /**
+     * @param apiClient      client to send queries with
+     * @param issueConverter converter for query results
+     * @param owner          Issue Repository Owner
+     * @param name           Issue Repository Name
+     */
+    GraphQLIssueFetcher(ApiClient apiClient, IssueConverter issueConverter, String owner, String name) {
+        this.apiClient = apiClient;
+        this.issueConverter = issueConverter;
+        this.owner = owner;
+        this.name = name;
+    }
+
+    /**
+     * Get all issues with matching state including comments
+     *
+     * @param filterState true to only fetch issues of one state
+     * @param state       true = open, false = closed
+     * @return list of tickets including comments, sorted by id descending
+     * @throws IOException API error
+     */
+    List<Ticket> getTickets(boolean filterState, boolean state) throws IOException {
+        List<Ticket> tickets = new ArrayList<>();
+        String after = null;
+        do {
+            ObjectNode variables = newVariables();
+            if (filterState) {
+                variables.putArray("states").add(state ? "OPEN" : "CLOSED");
+            }
+            if (after != null) {
+                variables.put("after", after);
+            }
+            JsonNode issues = query(issuesQuery, variables).path("repository").path("issues");
+            for (JsonNode issue : issues.path("nodes")) {
+                Ticket ticket = issueConverter.graphQLToTicket(issue, getComments(issue));
+                if (ticket != null) tickets.add(ticket);
+            }
+            JsonNode pageInfo = issues.path("pageInfo");
+            after = pageInfo.path("hasNextPage").asBoolean() ? pageInfo.path("endCursor").asText(null) : null;
+        } while (after != null);
+        return tickets;
+    }
+
+    /**
+     * Get single issue including comments
+     *
+     * @param number Issue number
+     * @return ticket including comments or null if not found
+     * @throws IOException API error
+     */
+    Ticket getTicket(int number) throws IOException {
+        ObjectNode variables = newVariables();
+        variables.put("number", number);
+        JsonNode issue = query(issueQuery, variables).path("repository").path("issue");
+        if (issue.isMissingNode() || issue.isNull()) {
+            return null;
+        }
+        return issueConverter.graphQLToTicket(issue, getComments(issue));
+    }
+
+    /**
+     * Get single issue with its latest comments in one query
+     *
+     * @param number Issue number
+     * @param count  max number of comments, at most 100
+     * @return ticket including the latest comments or null if not found
+     * @throws IOException API error
+     */
+    Ticket getTicket(int number, int count) throws IOException {
+        JsonNode issue = queryWindow(number, count, null);
+        if (issue == null) {
+            return null;
+        }
+        return issueConverter.graphQLToTicket(issue, issue.path("comments").path("nodes"));
+    }
+
+    /**
+     * Get single issue with a window of its comments in one query
+     *
+     * @param number Issue number
+     * @param count  max number of comments, at most 100
+     * @param before cursor of the comment after the window, null for the latest comments
+     * @return window with GraphQL cursors, holding the ticket *without* comments, or null if not found
+     * @throws IOException API error
+     */
+    CommentWindow getCommentWindow(int number, int count, String before) throws IOException {
+        JsonNode issue = queryWindow(number, count, before);
+        if (issue == null) {
+            return null;
+        }
+        Ticket ticket = issueConverter.graphQLToTicket(issue, issue.path("comments").path("nodes"));
+        if (ticket == null) {
+            return null;
+        }
+        JsonNode connection = issue.path("comments");
+        JsonNode pageInfo = connection.path("pageInfo");
+        String olderCursor = pageInfo.path("hasPreviousPage").asBoolean()
+                ? pageInfo.path("startCursor").asText(null) : null;
+        return new CommentWindow(ticket.withComments(null), ticket.getComments(),
+                connection.path("totalCount").asInt(), olderCursor, before == null);
+    }
+
+    /**
+     * @return issue node or null if not found
+     */
+    private JsonNode queryWindow(int number, int count, String before) throws IOException {
+        ObjectNode variables = newVariables();
+        variables.put("number", number);
+        variables.put("count", Math.min(count, pageSize));
+        if (before != null) {
+            variables.put("before", before);
+        }
+        JsonNode issue = query(windowQuery, variables).path("repository").path("issue");
+        return issue.isMissingNode() || issue.isNull() ? null : issue;
+    }
+
+    /**
+     * Collect comment nodes of an issue node, fetching further pages for issues with many comments
+     *
+     * @param issue Issue node with first page of comments
+     * @return all comment nodes in creation order
+     * @throws IOException API error
+     */
+    private List<JsonNode> getComments(JsonNode issue) throws IOException {
+        List<JsonNode> comments = new ArrayList<>();
+        JsonNode connection = issue.path("comments");
+        connection.path("nodes").forEach(comments::add);
+        JsonNode pageInfo = connection.path("pageInfo");
+        if (pageInfo.path("hasNextPage").asBoolean()) {
+            int number = issue.path("number").asInt();
+            String after = pageInfo.path("endCursor").asText();
+            comments.addAll(commentFlights.run(number + ":" + after, () -> getComments(number, after)));
+        }
+        return comments;
+    }
+
+    /**
+     * Fetch comment pages of an issue
+     *
+     * @param number Issue number
+     * @param after  cursor of the last comment already fetched
+     * @return comment nodes after the cursor in creation order
+     * @throws IOException API error
+     */
+    private List<JsonNode> getComments(int number, String after) throws IOException {
+        List<JsonNode> comments = new ArrayList<>();
+        while (after != null) {
+            ObjectNode variables = newVariables();
+            variables.put("number", number);
+            variables.put("after", after);
+            JsonNode connection = query(commentsQuery, variables).path("repository").path("issue").path("comments");
+            connection.path("nodes").forEach(comments::add);
+            JsonNode pageInfo = connection.path("pageInfo");
+            after = pageInfo.path("hasNextPage").asBoolean() ? pageInfo.path("endCursor").asText(null) : null;
+        }
+        return comments;
+    }
+
+    private ObjectNode newVariables() {
+        ObjectNode variables = ApiClient.getMapper().createObjectNode();
+        variables.put("owner", owner);
+        variables.put("name", name);
+        return variables;
+    }
+
+    /**
+     * Run GraphQL query
+     *
+     * @param query     GraphQL query document
+     * @param variables query variables
+     * @return data node of the result
+     * @throws IOException on API error or if the result contains errors
+     */
+    private JsonNode query(String query, ObjectNode variables) throws IOException {
+        ObjectNode request = ApiClient.getMapper().createObjectNode();
+        request.put("query", query);
+        request.set("variables", variables);
+
+        JsonNode result = apiClient.send("POST", apiClient.graphqlUrl(), request).getBody();
+        if (result == null) {
+            throw new IOException("Empty GraphQL response");
+        }
+        JsonNode errors = result.path("errors");
+        if (errors.isArray() && errors.size() > 0) {
+            // A missing issue is reported as error with a partial result, the caller handles it
+            if (isNotFoundOnly(errors) && result.has("data")) {
+                return result.path("data");
+            }
+            throw new IOException("GraphQL error: " + errors.path(0).path("message").asText());
+        }
+        return result.path("data");
+    }
+
+    private static boolean isNotFoundOnly(JsonNode errors) {
+        for (JsonNode error : errors) {
+            if (!"NOT_FOUND".equals(error.path("type").asText())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
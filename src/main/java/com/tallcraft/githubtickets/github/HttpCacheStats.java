@@ -0,0 +1,69 @@
+package com.tallcraft.githubtickets.github;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how GET requests were served by the HTTP cache.
+ * <br>
+ * Hits are served from cache without a request, revalidations are answered with 304 Not Modified
+ * (which doesn't count against the rate limit) and misses are answered with a full response.
+ */
+public class HttpCacheStats {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Interceptor which counts cache results, to be added as application interceptor
+     */
+    Interceptor getCountingInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if ("GET".equals(request.method())) {
+                Response networkResponse = response.networkResponse();
+                if (networkResponse == null) {
+                    hits.incrementAndGet();
+                } else if (networkResponse.code() == 304) {
+                    revalidations.incrementAndGet();
+                } else {
+                    misses.incrementAndGet();
+                }
+            }
+            return response;
+        };
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get share of GET requests served without a full response
+     *
+     * @return ratio between 0 and 1, 0 if no requests were sent yet
+     */
+    public double getHitRate() {
+        long served = hits.get() + revalidations.get();
+        long total = served + misses.get();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + ", revalidations=" + getRevalidations() + ", misses=" + getMisses()
+                + String.format(", hitRate=%.1f%%", getHitRate() * 100);
+    }
+}
@@ -0,0 +1,93 @@
+package com.tallcraft.githubtickets.github;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Issue or comment body split into its key value header and ticket text.
+ * <br>
+ * Bodies look like "Key: value" lines, followed by an empty line and the ticket text.
+ * Parsing is a single linear walk over the body without regular expressions.
+ */
+class IssueBody {
+    private final Map<String, String> fields;
+    private final String text;
+
+    private IssueBody(Map<String, String> fields, String text) {
+        this.fields = fields;
+        this.text = text;
+    }
+
+    /**
+     * Parse issue or comment body
+     *
+     * @param body body to parse, may be null
+     * @return parsed body
+     */
+    static IssueBody parse(String body) {
+        Map<String, String> fields = new HashMap<>(8);
+        if (body == null) {
+            return new IssueBody(fields, null);
+        }
+
+        int length = body.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = body.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            // Tolerate CRLF line endings from GitHub web edits
+            int contentEnd = lineEnd > lineStart && body.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (contentEnd == lineStart) {
+                // Empty line after another line => end of header, rest is ticket text
+                if (lineStart > 0 && lineEnd < length) {
+                    return new IssueBody(fields, body.substring(lineEnd + 1));
+                }
+            } else {
+                int separator = indexOfSeparator(body, lineStart, contentEnd);
+                if (separator >= 0) {
+                    fields.putIfAbsent(body.substring(lineStart, separator),
+                            body.substring(separator + 2, contentEnd));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        // No empty line, body consists of header only
+        return new IssueBody(fields, null);
+    }
+
+    /**
+     * Find ": " within a line, bounded so header-less lines don't scan the rest of the body
+     *
+     * @return index of the separator or -1 if the line has none
+     */
+    private static int indexOfSeparator(String body, int lineStart, int contentEnd) {
+        for (int i = lineStart; i < contentEnd - 1; i++) {
+            if (body.charAt(i) == ':' && body.charAt(i + 1) == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get value from header
+     *
+     * @param key Key of key-value pair
+     * @return value or null if not present
+     */
+    String get(String key) {
+        return fields.get(key);
+    }
+
+    /**
+     * Get ticket text following the header
+     *
+     * @return text after the first empty line or null if there is none
+     */
+    String getText() {
+        return text;
+    }
+}
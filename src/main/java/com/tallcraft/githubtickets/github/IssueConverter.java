@@ -1,17 +1,20 @@
 package com.tallcraft.githubtickets.github;
 
+import com.tallcraft.githubtickets.Metrics;
 import com.tallcraft.githubtickets.ticket.Location;
 import com.tallcraft.githubtickets.ticket.Ticket;
 import com.tallcraft.githubtickets.ticket.TicketComment;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.kohsuke.github.GHIssue;
 import org.kohsuke.github.GHIssueComment;
 import org.kohsuke.github.GHIssueState;
 import org.kohsuke.github.GHRepository;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -21,7 +24,7 @@ class IssueConverter {
     // Max github issue title length
     private static final int maxTitleLength = 100;
     private static final IssueConverter ourInstance = new IssueConverter();
-    private static final Pattern ticketBodyPattern = Pattern.compile("\\n\\n(.*)", Pattern.DOTALL);
+    private static final Metrics metrics = Metrics.getInstance();
 
     private IssueConverter() {
     }
@@ -30,37 +33,6 @@ class IssueConverter {
         return ourInstance;
     }
 
-    /**
-     * Get value from issue body
-     *
-     * @param body Body to extract value from
-     * @param key  Key of key-value pair
-     * @return Extracted value
-     */
-    private static String getValue(String body, String key) {
-        Pattern pattern = Pattern.compile(key + ": (.*)");
-        Matcher matcher = pattern.matcher(body);
-
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null; // Not found
-    }
-
-    /**
-     * Extract ticket body text from issue
-     *
-     * @param body Issue body to extract body text from
-     * @return body text of issue without key value pairs
-     */
-    private static String getTicketBody(String body) {
-        Matcher matcher = ticketBodyPattern.matcher(body);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
-    }
-
     /**
      * Convert Ticket object to Issue Object
      *
@@ -68,32 +40,59 @@ class IssueConverter {
      * @return Issue object from ticket data
      */
     GHIssue ticketToIssue(GHRepository repository, Ticket ticket) throws IOException {
-        GHIssue issue = repository.createIssue(getIssueTitle(ticket))
+        return repository.createIssue(getIssueTitle(ticket))
                 .body(getIssueBody(ticket))
                 .label("Server: " + ticket.getServerName()).create();
-        if (issue == null) {
-            return null;
+    }
+
+    /**
+     * Converts github comment to ticket comment
+     *
+     * @param issueComment comment representation from github with metadata in body
+     * @return internal comment format with seperated fields
+     */
+    private TicketComment issueCommentToTicketComment(GHIssueComment issueComment) {
+        Date createdAt = null;
+        try {
+            createdAt = issueComment.getCreatedAt();
+        } catch (IOException e) {
+            // Could not get / parse date
         }
 
-        ticket.getComments().forEach(ticketComment -> {
+        return parseComment(issueComment.getBody(), createdAt, () -> {
+            // Can be ticket bot name
             try {
-                issue.comment(ticketCommentToIssueCommentStr(ticketComment));
+                return issueComment.getUser().getName();
             } catch (IOException e) {
-                e.printStackTrace();
+                // failed to get display name, leave it null
+                return null;
             }
         });
-
-        return issue;
     }
 
     /**
-     * Converts github comment to ticket comment
+     * Parse ticket comment from comment data
      *
-     * @param issueComment comment representation from github with metadata in body
+     * @param commentBody comment body with metadata
+     * @param createdAt   comment creation time
+     * @param authorName  supplies name of GitHub author, only called for comments from github web
      * @return internal comment format with seperated fields
      */
-    private TicketComment issueCommentToTicketComment(GHIssueComment issueComment) {
-        String uuidStr = getValue(issueComment.getBody(), "UUID");
+    private TicketComment parseComment(String commentBody, Date createdAt, Supplier<String> authorName) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            TicketComment comment = doParseComment(commentBody, createdAt, authorName);
+            success = true;
+            return comment;
+        } finally {
+            metrics.record("convert.comment", System.nanoTime() - start, success);
+        }
+    }
+
+    private TicketComment doParseComment(String commentBody, Date createdAt, Supplier<String> authorName) {
+        IssueBody parsedBody = IssueBody.parse(commentBody);
+        String uuidStr = parsedBody.get("UUID");
         UUID uuid = null;
         String body = null;
 
@@ -106,17 +105,11 @@ class IssueConverter {
         }
 
         //  Get display name, fallback to github name
-        String displayName = getValue(issueComment.getBody(), "Name");
+        String displayName = parsedBody.get("Name");
         if (displayName == null) {
             // If display name is not present we assume that body comes from github web, use it all
-            body = issueComment.getBody();
-
-            // Can be ticket bot name
-            try {
-                displayName = issueComment.getUser().getName();
-            } catch (IOException e) {
-                // failed to get display name, leave it null
-            }
+            body = commentBody;
+            displayName = authorName.get();
 
             // If no name can be found use static
             if (displayName == null) {
@@ -126,19 +119,61 @@ class IssueConverter {
 
         // If body wasn't already set previously parse it from comment
         if (body == null) {
-            body = getTicketBody(issueComment.getBody());
+            body = parsedBody.getText();
         }
 
-        Date createdAt = null;
+        return new TicketComment(createdAt, uuid, displayName, body);
+    }
+
+    /**
+     * Parse ticket fields from issue data
+     *
+     * @param number    Issue number
+     * @param open      Issue open state
+     * @param createdAt Issue creation time
+     * @param updatedAt Issue last update time, may be null
+     * @param issueBody Issue body with key value pairs
+     * @return Ticket object from issue data
+     * @throws IllegalArgumentException if issue data is not a valid ticket
+     */
+    private Ticket parseTicket(int number, boolean open, Date createdAt, Date updatedAt, String issueBody) {
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-            createdAt = issueComment.getCreatedAt();
-        } catch (IOException e) {
-            // Could not get / parse date
+            Ticket ticket = doParseTicket(number, open, createdAt, updatedAt, issueBody);
+            success = true;
+            return ticket;
+        } finally {
+            metrics.record("convert.ticket", System.nanoTime() - start, success);
         }
-
-        return new TicketComment(createdAt, uuid, displayName, body);
     }
 
+    private Ticket doParseTicket(int number, boolean open, Date createdAt, Date updatedAt, String issueBody) {
+        Ticket ticket = new Ticket();
+        ticket.setId(number);
+        ticket.setOpen(open);
+        ticket.setTimestamp(createdAt);
+        ticket.setUpdatedAt(updatedAt);
+
+        // Single pass over the body for all header fields and the ticket text
+        IssueBody parsedBody = IssueBody.parse(issueBody);
+        String uuid = parsedBody.get("UUID");
+
+        if (uuid != null) {
+            try {
+                ticket.setPlayerUUID(UUID.fromString(uuid));
+            } catch (IllegalArgumentException ex) {
+                ex.printStackTrace();
+            }
+        }
+
+        ticket.setPlayerName(parsedBody.get("Player"));
+        ticket.setServerName(parsedBody.get("Server"));
+        ticket.setWorldName(parsedBody.get("World"));
+        ticket.setLocation(Location.fromString(parsedBody.get("Location")));
+        ticket.setBody(parsedBody.getText());
+        return ticket;
+    }
 
     /**
      * Convert Issue object to Ticket Object
@@ -150,29 +185,11 @@ class IssueConverter {
         if (issue == null) {
             return null;
         }
-        Ticket ticket = new Ticket();
-        String issueBody = issue.getBody();
+        Ticket ticket;
 
         try {
-            ticket.setId(issue.getNumber());
-            ticket.setOpen(issue.getState().equals(GHIssueState.OPEN));
-            ticket.setTimestamp(issue.getCreatedAt());
-
-            String uuid = getValue(issueBody, "UUID");
-
-            if (uuid != null) {
-                try {
-                    ticket.setPlayerUUID(UUID.fromString(uuid));
-                } catch (IllegalArgumentException ex) {
-                    ex.printStackTrace();
-                }
-            }
-
-            ticket.setPlayerName(getValue(issueBody, "Player"));
-            ticket.setServerName(getValue(issueBody, "Server"));
-            ticket.setWorldName(getValue(issueBody, "World"));
-            ticket.setLocation(Location.fromString(getValue(issueBody, "Location")));
-            ticket.setBody(getTicketBody(issueBody));
+            ticket = parseTicket(issue.getNumber(), issue.getState().equals(GHIssueState.OPEN),
+                    issue.getCreatedAt(), issue.getUpdatedAt(), issue.getBody());
         } catch (IllegalArgumentException | IOException ex) {
             // Error while parsing ticket
             return null;
@@ -198,6 +215,108 @@ class IssueConverter {
         return ticket;
     }
 
+    /**
+     * Convert issue JSON from the REST API to Ticket Object *without* comments
+     *
+     * @param issue Issue JSON to convert
+     * @return Ticket object from issue data or null if issue is not a valid ticket
+     */
+    Ticket jsonToTicket(JsonNode issue) {
+        // The issues endpoint also lists pull requests
+        if (issue == null || issue.has("pull_request")) {
+            return null;
+        }
+        try {
+            return parseTicket(issue.path("number").asInt(),
+                    "open".equals(issue.path("state").asText()),
+                    parseDate(issue.path("created_at").asText(null)),
+                    parseDate(issue.path("updated_at").asText(null)),
+                    issue.path("body").asText(""));
+        } catch (IllegalArgumentException ex) {
+            // Error while parsing ticket
+            return null;
+        }
+    }
+
+    /**
+     * Convert comment JSON from the REST API or a webhook payload to Ticket comment
+     *
+     * @param comment Comment JSON to convert
+     * @return internal comment format or null if comment JSON is missing or invalid
+     */
+    TicketComment jsonToTicketComment(JsonNode comment) {
+        if (comment == null || comment.isMissingNode() || comment.isNull()) {
+            return null;
+        }
+        try {
+            // REST payloads only carry the login of the author
+            JsonNode user = comment.path("user");
+            return parseComment(comment.path("body").asText(""),
+                    parseDate(comment.path("created_at").asText(null)),
+                    () -> user.path("login").asText(null));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Convert issue node from the GraphQL API to Ticket Object
+     *
+     * @param issue    Issue node with number, state, body, createdAt and updatedAt
+     * @param comments Comment nodes of the issue, null to convert *without* comments
+     * @return Ticket object from issue data or null if issue is not a valid ticket
+     */
+    Ticket graphQLToTicket(JsonNode issue, Iterable<JsonNode> comments) {
+        if (issue == null || issue.isNull()) {
+            return null;
+        }
+        Ticket ticket;
+        try {
+            ticket = parseTicket(issue.path("number").asInt(),
+                    "OPEN".equals(issue.path("state").asText()),
+                    parseDate(issue.path("createdAt").asText(null)),
+                    parseDate(issue.path("updatedAt").asText(null)),
+                    issue.path("body").asText(""));
+        } catch (IllegalArgumentException ex) {
+            // Error while parsing ticket
+            return null;
+        }
+
+        if (comments != null) {
+            LinkedList<TicketComment> ticketComments = new LinkedList<>();
+            for (JsonNode comment : comments) {
+                try {
+                    JsonNode author = comment.path("author");
+                    ticketComments.add(parseComment(comment.path("body").asText(""),
+                            parseDate(comment.path("createdAt").asText(null)),
+                            () -> author.path("name").asText(null)));
+                } catch (IllegalArgumentException ex) {
+                    // Skip invalid comment
+                    ex.printStackTrace();
+                }
+            }
+            ticket.setComments(ticketComments);
+        }
+        return ticket;
+    }
+
+    /**
+     * Parse ISO 8601 timestamp as used by the GitHub API
+     *
+     * @param timestamp timestamp string, e.g. 2020-01-01T12:00:00Z
+     * @return parsed date or null if timestamp is null
+     */
+    static Date parseDate(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            return Date.from(Instant.parse(timestamp));
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid timestamp: " + timestamp, ex);
+        }
+    }
+
     /**
      * Convert collection of issues to tickets
      *
@@ -205,7 +324,7 @@ class IssueConverter {
      * @return Collection of tickets
      */
     List<Ticket> issueToTicket(Collection<GHIssue> issues, boolean includeComments) {
-        List<Ticket> tickets = new LinkedList<>();
+        List<Ticket> tickets = new ArrayList<>(issues.size());
         for (GHIssue issue : issues) {
             Ticket ticket = issueToTicket(issue, includeComments);
             if (ticket != null) tickets.add(ticket);
@@ -0,0 +1,253 @@
+package com.tallcraft.githubtickets.github;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paces all GitHub API requests.
+ * <br>
+ * A token bucket limits bursts and the remaining hourly quota is tracked from response headers.
+ * Interactive requests (player commands) are served before background requests (sync, login counts).
+ * Background requests are shed once the remaining quota drops below a reserve, so player actions keep working.
+ */
+public class RequestScheduler {
+    private final ThreadLocal<RequestPriority> currentPriority = new ThreadLocal<>();
+
+    // Token bucket
+    private int burst = 20;
+    private double requestsPerSecond = 5;
+    private double tokens = burst;
+    private long lastRefill = System.nanoTime();
+
+    // Quota below which background requests are shed
+    private int reserve = 500;
+    // Max time to wait for a token, interactive requests are sent anyway afterwards
+    private long maxWaitMillis = 10000;
+
+    // Number of interactive requests waiting for a token, background requests yield to them
+    private int interactiveWaiting = 0;
+
+    // Remaining quota per rate limit resource (core, graphql, ...) and reset time in epoch seconds
+    private final Map<String, Quota> quotas = new HashMap<>();
+
+    /**
+     * Priority of a GitHub request
+     */
+    public enum RequestPriority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    /**
+     * GitHub operation which may send one or more requests
+     */
+    public interface Request<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Thrown if a background request is shed to save quota for interactive requests
+     */
+    public static class RequestDeferredException extends IOException {
+        RequestDeferredException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Configure token bucket
+     *
+     * @param burst             max number of requests sent without pacing
+     * @param requestsPerSecond sustained request rate
+     */
+    public synchronized void setRate(int burst, double requestsPerSecond) {
+        this.burst = Math.max(1, burst);
+        this.requestsPerSecond = Math.max(0.01, requestsPerSecond);
+        this.tokens = Math.min(tokens, this.burst);
+    }
+
+    /**
+     * @param reserve quota kept for interactive requests
+     */
+    public synchronized void setReserve(int reserve) {
+        this.reserve = reserve;
+    }
+
+    /**
+     * @param maxWaitMillis max time a request waits for a token
+     */
+    public synchronized void setMaxWait(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Run GitHub operation with given priority. Every request it sends is scheduled with that priority.
+     *
+     * @param priority priority of the operation
+     * @param request  operation to run
+     * @return result of the operation
+     * @throws RequestDeferredException if a background request was shed
+     * @throws IOException              API error
+     */
+    public <T> T call(RequestPriority priority, Request<T> request) throws IOException {
+        RequestPriority previous = currentPriority.get();
+        currentPriority.set(priority);
+        try {
+            return request.call();
+        } finally {
+            if (previous == null) {
+                currentPriority.remove();
+            } else {
+                currentPriority.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Interceptor which acquires a token before each request, to be added as application interceptor
+     */
+    Interceptor getSchedulingInterceptor() {
+        return chain -> {
+            RequestPriority priority = currentPriority.get();
+            acquire(priority == null ? RequestPriority.INTERACTIVE : priority);
+            return chain.proceed(chain.request());
+        };
+    }
+
+    /**
+     * Interceptor which tracks quota from rate limit headers, to be added as network interceptor
+     * so responses served from cache don't count
+     */
+    Interceptor getQuotaInterceptor() {
+        return chain -> {
+            Response response = chain.proceed(chain.request());
+            updateQuota(response);
+            return response;
+        };
+    }
+
+    /**
+     * Get lowest remaining quota of all rate limit resources
+     *
+     * @return remaining requests until reset, or -1 if unknown
+     */
+    public synchronized int getRemainingQuota() {
+        long now = System.currentTimeMillis() / 1000;
+        int remaining = -1;
+        for (Quota quota : quotas.values()) {
+            if (quota.reset <= now) {
+                continue;
+            }
+            if (remaining < 0 || quota.remaining < remaining) {
+                remaining = quota.remaining;
+            }
+        }
+        return remaining;
+    }
+
+    private synchronized void updateQuota(Response response) {
+        String remaining = response.header("X-RateLimit-Remaining");
+        String reset = response.header("X-RateLimit-Reset");
+        if (remaining == null || reset == null) {
+            return;
+        }
+        try {
+            String resource = response.header("X-RateLimit-Resource", "core");
+            quotas.put(resource, new Quota(Integer.parseInt(remaining), Long.parseLong(reset)));
+        } catch (NumberFormatException ex) {
+            // Ignore malformed header
+        }
+        notifyAll();
+    }
+
+    /**
+     * Get epoch second at which the exhausted quota resets
+     *
+     * @return reset time or 0 if no quota is exhausted
+     */
+    private long getExhaustedUntil() {
+        long now = System.currentTimeMillis() / 1000;
+        long until = 0;
+        for (Quota quota : quotas.values()) {
+            if (quota.remaining <= 0 && quota.reset > now) {
+                until = Math.max(until, quota.reset);
+            }
+        }
+        return until;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * requestsPerSecond);
+        lastRefill = now;
+    }
+
+    /**
+     * Wait for a token
+     *
+     * @param priority priority of the request
+     * @throws IOException if the request is shed or the quota is exhausted
+     */
+    private synchronized void acquire(RequestPriority priority) throws IOException {
+        boolean interactive = priority == RequestPriority.INTERACTIVE;
+
+        long exhaustedUntil = getExhaustedUntil();
+        if (exhaustedUntil > 0) {
+            throw new RequestDeferredException("GitHub rate limit exhausted until "
+                    + new java.util.Date(exhaustedUntil * 1000));
+        }
+        int remaining = getRemainingQuota();
+        if (!interactive && remaining >= 0 && remaining < reserve) {
+            throw new RequestDeferredException("Deferring background request, " + remaining
+                    + " requests left in quota");
+        }
+
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        if (interactive) {
+            interactiveWaiting++;
+        }
+        try {
+            while (true) {
+                refill();
+                if (tokens >= 1 && (interactive || interactiveWaiting == 0)) {
+                    tokens -= 1;
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                if (now >= deadline) {
+                    if (interactive) {
+                        // Don't fail player actions because of pacing
+                        return;
+                    }
+                    throw new RequestDeferredException("Deferring background request, request budget in use");
+                }
+                long untilToken = tokens >= 1 ? 50 : (long) Math.ceil((1 - tokens) / requestsPerSecond * 1000);
+                try {
+                    wait(Math.max(1, Math.min(untilToken, deadline - now)));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for GitHub request budget", ex);
+                }
+            }
+        } finally {
+            if (interactive) {
+                interactiveWaiting--;
+                notifyAll();
+            }
+        }
+    }
+
+    private static class Quota {
+        private final int remaining;
+        private final long reset;
+
+        private Quota(int remaining, long reset) {
+            this.remaining = remaining;
+            this.reset = reset;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.tallcraft.githubtickets.github;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent identical reads.
+ * The first caller for a key runs the request, callers arriving while it is in flight wait for and share its result.
+ * Nothing is cached, once the request completed the next caller runs a new one.
+ *
+ * @param <K> resource key, e.g. issue number
+ * @param <V> result type
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run request or join the in-flight request for the same key
+     *
+     * @param key     resource key
+     * @param request request to run if none is in flight
+     * @return result of the request
+     * @throws IOException API error of the shared request
+     */
+    V run(K key, RequestScheduler.Request<V> request) throws IOException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            try {
+                return await(existing);
+            } catch (RequestScheduler.RequestDeferredException ex) {
+                // The shared request was shed as background work, this caller may have a higher priority
+                return request.call();
+            }
+        }
+
+        try {
+            V result = request.call();
+            flight.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return number of requests currently in flight
+     */
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for shared GitHub request");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.tallcraft.githubtickets.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tallcraft.githubtickets.ticket.Ticket;
+import com.tallcraft.githubtickets.ticket.TicketComment;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP listener for GitHub webhook deliveries.
+ * <br>
+ * Accepts 'issues' and 'issue_comment' events, verifies their HMAC signature (X-Hub-Signature-256)
+ * and passes the converted tickets to a {@link Listener}. Deliveries are handled one at a time,
+ * redeliveries of an already handled delivery id are ignored.
+ */
+public class WebhookReceiver {
+    // GitHub issue payloads are small, larger bodies are rejected before verification
+    private static final int maxBodySize = 1024 * 1024;
+    private static final int recentDeliveryCount = 256;
+
+    private static final IssueConverter issueConverter = IssueConverter.getInstance();
+
+    private final InetSocketAddress address;
+    private final String path;
+    private final byte[] secret;
+    private final Listener listener;
+
+    // Login of the account the plugin acts as, its events were already handled locally
+    private volatile String selfLogin;
+
+    private final Map<String, Boolean> recentDeliveries = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > recentDeliveryCount;
+        }
+    };
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+
+    /**
+     * Receives ticket changes from webhook deliveries
+     */
+    public interface Listener {
+        /**
+         * Issue was opened, edited, closed, reopened, ...
+         *
+         * @param ticket   changed ticket *without* comments
+         * @param action   webhook action, e.g. opened or closed
+         * @param fromSelf true if the change was made by the plugin itself
+         */
+        void onTicketChanged(Ticket ticket, String action, boolean fromSelf);
+
+        /**
+         * Issue was deleted or transferred to another repository
+         *
+         * @param id Ticket ID
+         */
+        void onTicketDeleted(int id);
+
+        /**
+         * Comment was created, edited or deleted
+         *
+         * @param ticket   commented ticket *without* comments
+         * @param comment  changed comment
+         * @param action   webhook action, e.g. created
+         * @param fromSelf true if the comment was made by the plugin itself
+         */
+        void onTicketComment(Ticket ticket, TicketComment comment, String action, boolean fromSelf);
+    }
+
+    /**
+     * @param address  address to listen on
+     * @param path     url path deliveries are sent to, e.g. /github-webhook
+     * @param secret   webhook secret configured on GitHub
+     * @param listener receiver of ticket changes
+     */
+    public WebhookReceiver(InetSocketAddress address, String path, String secret, Listener listener) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Webhook secret must not be empty");
+        }
+        this.address = address;
+        this.path = path;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.listener = listener;
+    }
+
+    /**
+     * @param selfLogin GitHub login the plugin acts as, null if unknown
+     */
+    public void setSelfLogin(String selfLogin) {
+        this.selfLogin = selfLogin;
+    }
+
+    /**
+     * Start listening
+     *
+     * @throws IOException if the address can't be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        serverExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GitHubTickets-Webhook");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            serverExecutor.shutdown();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "POST only");
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, 413, "Payload too large");
+                return;
+            }
+            if (!isSignatureValid(body, exchange.getRequestHeaders().getFirst("X-Hub-Signature-256"))) {
+                respond(exchange, 401, "Invalid signature");
+                return;
+            }
+            String delivery = exchange.getRequestHeaders().getFirst("X-GitHub-Delivery");
+            if (delivery != null && isDelivered(delivery)) {
+                respond(exchange, 200, "Already delivered");
+                return;
+            }
+
+            JsonNode payload;
+            try {
+                payload = ApiClient.getMapper().readTree(body);
+            } catch (IOException ex) {
+                respond(exchange, 400, "Invalid JSON");
+                return;
+            }
+            String event = exchange.getRequestHeaders().getFirst("X-GitHub-Event");
+            String result = dispatch(event, payload);
+            if (delivery != null) {
+                markDelivered(delivery);
+            }
+            respond(exchange, 200, result);
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            respond(exchange, 500, "Error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Pass event to listener
+     *
+     * @param event   event name from X-GitHub-Event header
+     * @param payload event payload
+     * @return response message
+     */
+    private String dispatch(String event, JsonNode payload) {
+        if (payload == null || event == null) {
+            return "Ignored";
+        }
+        String action = payload.path("action").asText("");
+        boolean fromSelf = selfLogin != null && selfLogin.equalsIgnoreCase(payload.path("sender").path("login").asText(null));
+
+        switch (event) {
+            case "issues": {
+                int id = payload.path("issue").path("number").asInt();
+                if ("deleted".equals(action) || "transferred".equals(action)) {
+                    listener.onTicketDeleted(id);
+                    return "OK";
+                }
+                Ticket ticket = issueConverter.jsonToTicket(payload.path("issue"));
+                if (ticket == null) {
+                    return "Ignored, not a ticket";
+                }
+                listener.onTicketChanged(ticket, action, fromSelf);
+                return "OK";
+            }
+            case "issue_comment": {
+                Ticket ticket = issueConverter.jsonToTicket(payload.path("issue"));
+                TicketComment comment = issueConverter.jsonToTicketComment(payload.path("comment"));
+                if (ticket == null || comment == null) {
+                    return "Ignored, not a ticket";
+                }
+                listener.onTicketComment(ticket, comment, action, fromSelf);
+                return "OK";
+            }
+            default:
+                // e.g. ping on webhook creation
+                return "Ignored";
+        }
+    }
+
+    // Deliveries are handled one at a time by the server thread
+    private boolean isDelivered(String delivery) {
+        return recentDeliveries.containsKey(delivery);
+    }
+
+    private void markDelivered(String delivery) {
+        recentDeliveries.put(delivery, Boolean.TRUE);
+    }
+
+    /**
+     * Verify HMAC-SHA256 signature of the payload in constant time
+     *
+     * @param body      raw payload
+     * @param signature header value, e.g. sha256=0123abcd...
+     * @return true if the signature matches
+     */
+    private boolean isSignatureValid(byte[] body, String signature) {
+        if (signature == null || !signature.startsWith("sha256=")) {
+            return false;
+        }
+        byte[] expected;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            expected = mac.doFinal(body);
+        } catch (GeneralSecurityException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+        byte[] actual = parseHex(signature.substring("sha256=".length()));
+        return actual != null && MessageDigest.isEqual(expected, actual);
+    }
+
+    private static byte[] parseHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Read request body
+     *
+     * @return body or null if it exceeds the size limit
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxBodySize) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] response = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
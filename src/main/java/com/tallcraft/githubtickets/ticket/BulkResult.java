@@ -0,0 +1,53 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a bulk ticket operation, with tickets and ids sorted ascending
+ */
+public class BulkResult {
+    private final List<Ticket> changed = new ArrayList<>();
+    private final List<Integer> notFound = new ArrayList<>();
+    private final List<Integer> failed = new ArrayList<>();
+
+    synchronized void addChanged(Ticket ticket) {
+        changed.add(ticket);
+    }
+
+    synchronized void addNotFound(int id) {
+        notFound.add(id);
+    }
+
+    synchronized void addFailed(int id) {
+        failed.add(id);
+    }
+
+    synchronized void sort() {
+        changed.sort(Comparator.comparingInt(Ticket::getId));
+        notFound.sort(Comparator.naturalOrder());
+        failed.sort(Comparator.naturalOrder());
+    }
+
+    /**
+     * @return tickets which were changed
+     */
+    public synchronized List<Ticket> getChanged() {
+        return new ArrayList<>(changed);
+    }
+
+    /**
+     * @return ids of tickets which no longer exist on GitHub
+     */
+    public synchronized List<Integer> getNotFound() {
+        return new ArrayList<>(notFound);
+    }
+
+    /**
+     * @return ids of tickets which couldn't be changed because of an API error
+     */
+    public synchronized List<Integer> getFailed() {
+        return new ArrayList<>(failed);
+    }
+}
@@ -0,0 +1,66 @@
+package com.tallcraft.githubtickets.ticket;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+
+import java.util.List;
+
+/**
+ * Consecutive comments of a ticket, the latest ones unless older comments were requested
+ */
+public class CommentWindow {
+    private final Ticket ticket;
+    private final List<TicketComment> comments;
+    private final int totalCount;
+    private final String olderCursor;
+    private final boolean latest;
+
+    /**
+     * @param ticket      ticket the comments belong to, its own comments are not used
+     * @param comments    comments of the window in order
+     * @param totalCount  number of comments of the ticket
+     * @param olderCursor cursor of the comments before this window, null if there are none
+     * @param latest      true if the window ends with the latest comment
+     */
+    public CommentWindow(Ticket ticket, List<TicketComment> comments, int totalCount, String olderCursor,
+                         boolean latest) {
+        this.ticket = ticket;
+        this.comments = comments;
+        this.totalCount = totalCount;
+        this.olderCursor = olderCursor;
+        this.latest = latest;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public List<TicketComment> getComments() {
+        return comments;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return cursor to pass to {@link TicketController#getCommentWindow(int, String, int)} for the comments
+     * before this window, null if there are none
+     */
+    public String getOlderCursor() {
+        return olderCursor;
+    }
+
+    public boolean isLatest() {
+        return latest;
+    }
+
+    /**
+     * Render window for chat. The latest window is shown with the ticket, older windows only with their comments.
+     *
+     * @param olderCommand command prefix the older cursor is appended to, e.g. "/ticket show 42 "
+     * @return chat message
+     */
+    public BaseComponent[] toChat(String olderCommand) {
+        return ticket.toChat(comments, totalCount, olderCursor == null ? null : olderCommand + olderCursor, latest);
+    }
+}
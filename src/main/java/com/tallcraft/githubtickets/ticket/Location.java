@@ -1,13 +1,9 @@
 package com.tallcraft.githubtickets.ticket;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Intermediate location class (Bukkit / GitHub agnostic)
  */
 public class Location {
-    private static Pattern pattern = Pattern.compile("(\\S+), (\\S+), (\\S+)");
     private double x;
     private double y;
     private double z;
@@ -18,10 +14,6 @@ public class Location {
         this.z = z;
     }
 
-    private Location(String x, String y, String z) {
-        this(Double.parseDouble(x), Double.parseDouble(y), Double.parseDouble(z));
-    }
-
     /**
      * Construct Location object from comma separated string
      *
@@ -31,11 +23,15 @@ public class Location {
     public static Location fromString(String str) {
         if (str == null) throw new IllegalArgumentException("str must not be null");
 
-        Matcher matcher = pattern.matcher(str);
-        if (matcher.find()) {
-            return new Location(matcher.group(1), matcher.group(2), matcher.group(3));
+        int first = str.indexOf(", ");
+        int second = first < 0 ? -1 : str.indexOf(", ", first + 2);
+        if (second < 0) {
+            return null;
         }
-        return null;
+        return new Location(
+                Double.parseDouble(str.substring(0, first).trim()),
+                Double.parseDouble(str.substring(first + 2, second).trim()),
+                Double.parseDouble(str.substring(second + 2).trim()));
     }
 
     public double getX() {
@@ -16,12 +16,13 @@ public class Ticket {
     private static final int ticketListTextLength = 60;
     // format locale and color settings
     static Locale locale = new Locale("en", "US");
-    static DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+    private static final DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
     static ChatColor chatKeyColor = ChatColor.GOLD;
     private static ChatColor ticketOpenColor = ChatColor.DARK_GREEN;
     private static ChatColor ticketClosedColor = ChatColor.DARK_RED;
     // Meta
     private Date timestamp;
+    private Date updatedAt;
     private UUID playerUUID;
     private String playerName;
     private String serverName;
@@ -80,6 +81,44 @@ public class Ticket {
         this.comments = new LinkedList<>();
     }
 
+    /**
+     * Test if ticket id is provisional, i.e. the ticket is not created on GitHub yet
+     *
+     * @param id Ticket ID
+     * @return true if id is provisional
+     */
+    public static boolean isProvisionalId(int id) {
+        return id < 0;
+    }
+
+    /**
+     * Format ticket id for chat, provisional ids are shown as P1, P2, ...
+     *
+     * @param id Ticket ID
+     * @return id string without leading #
+     */
+    public static String idToString(int id) {
+        return isProvisionalId(id) ? "P" + -id : Integer.toString(id);
+    }
+
+    /**
+     * Parse ticket id formatted by {@link #idToString(int)}
+     *
+     * @param str id string, e.g. 42 or P3
+     * @return Ticket ID
+     * @throws NumberFormatException if str is not a valid ticket id
+     */
+    public static int parseId(String str) {
+        if (str.startsWith("P") || str.startsWith("p")) {
+            int provisional = Integer.parseInt(str.substring(1));
+            if (provisional <= 0) throw new NumberFormatException("Invalid provisional ticket id: " + str);
+            return -provisional;
+        }
+        int id = Integer.parseInt(str);
+        if (id < 0) throw new NumberFormatException("Invalid ticket id: " + str);
+        return id;
+    }
+
     /**
      * Convert list of tickets to formatted message for MC chat
      *
@@ -88,44 +127,66 @@ public class Ticket {
      */
     public static BaseComponent[] ticketListToChat(List<Ticket> tickets) {
         ComponentBuilder builder = new ComponentBuilder("");
-
         for (Ticket ticket : tickets) {
+            builder.append(ticket.toListEntryChat(), f);
+        }
+        return builder.create();
+    }
+
+    /**
+     * Convert ticket to a line of the ticket list for MC chat
+     *
+     * @return BaseComponent holding list entry including line break
+     */
+    BaseComponent[] toListEntryChat() {
+        ComponentBuilder builder = new ComponentBuilder("");
+
+        // Hover text: Playername and ticket body
+
+        HoverEvent ticketHover = getTicketListHoverEvent();
+        ClickEvent ticketClick = getTicketListClickEvent();
+
+        // Ticket ID
+        builder.append(Integer.toString(id), f)
+                .bold(true).color(chatKeyColor)
+                .event(ticketHover)
+                .event(ticketClick);
+
+        // Ticket body
+        // Limit ticket body for list view
+        String ticketBody = body;
+        String ticketPlayer = playerName;
 
-            // Hover text: Playername and ticket body
-
-            HoverEvent ticketHover = ticket.getTicketListHoverEvent();
-            ClickEvent ticketClick = ticket.getTicketListClickEvent();
-
-            // Ticket ID
-            builder.append(Integer.toString(ticket.getId()), f)
-                    .bold(true).color(chatKeyColor)
-                    .event(ticketHover)
-                    .event(ticketClick);
-
-            // Ticket body
-            // Limit ticket body for list view
-            String ticketBody = ticket.getBody();
-            String ticketPlayer = ticket.getPlayerName();
-
-            if (ticketBody == null) ticketBody = "INVALID";
-            if (ticketPlayer == null) ticketPlayer = "INVALID";
-
-            // Calculate length of list entry, constant is extra space
-            int entryLength = ticketBody.length() + ticketPlayer.length() + Integer.toString(ticket.getId()).length() + 1;
-            int delta = ticketListTextLength - entryLength;
-
-            // We have to cut because entryLength is too long
-            if (delta < 0) {
-                int lastIndex = ticketBody.length() + delta - 4;
-                if (lastIndex < 0) lastIndex = 0;
-                ticketBody = ticketBody.substring(0, lastIndex) + " ...";
-            }
-            builder.append(" " + ticketPlayer + ": ", f).color(chatKeyColor).event(ticketHover).event(ticketClick);
-            builder.append(ticketBody, f).event(ticketHover).event(ticketClick).append("\n");
+        if (ticketBody == null) ticketBody = "INVALID";
+        if (ticketPlayer == null) ticketPlayer = "INVALID";
+
+        // Calculate length of list entry, constant is extra space
+        int entryLength = ticketBody.length() + ticketPlayer.length() + Integer.toString(id).length() + 1;
+        int delta = ticketListTextLength - entryLength;
+
+        // We have to cut because entryLength is too long
+        if (delta < 0) {
+            int lastIndex = ticketBody.length() + delta - 4;
+            if (lastIndex < 0) lastIndex = 0;
+            ticketBody = ticketBody.substring(0, lastIndex) + " ...";
         }
+        builder.append(" " + ticketPlayer + ": ", f).color(chatKeyColor).event(ticketHover).event(ticketClick);
+        builder.append(ticketBody, f).event(ticketHover).event(ticketClick).append("\n");
         return builder.create();
     }
 
+    /**
+     * Format date for chat. Tickets may be rendered off the main thread, DateFormat is not thread safe.
+     *
+     * @param date date to format
+     * @return formatted date
+     */
+    static String formatDate(Date date) {
+        synchronized (dateFormat) {
+            return dateFormat.format(date);
+        }
+    }
+
     /**
      * Generate minecraft chat hover event for ticket list
      *
@@ -167,6 +228,15 @@ public class Ticket {
         this.timestamp = timestamp;
     }
 
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        // Can be null (not yet known)
+        this.updatedAt = updatedAt;
+    }
+
     public UUID getPlayerUUID() {
         return playerUUID;
     }
@@ -236,6 +306,32 @@ public class Ticket {
         this.comments = comments;
     }
 
+    /**
+     * Copy ticket with other comments
+     *
+     * @param comments comments of the copy, null if not loaded
+     * @return copy of this ticket
+     */
+    public Ticket withComments(LinkedList<TicketComment> comments) {
+        Ticket copy = new Ticket(id, isOpen, timestamp, playerUUID, playerName, serverName, worldName, location, body);
+        copy.setUpdatedAt(updatedAt);
+        copy.setComments(comments);
+        return copy;
+    }
+
+    /**
+     * Copy ticket with at most the latest 'count' comments
+     *
+     * @param count max number of comments
+     * @return copy of this ticket, or this ticket if it has no more comments
+     */
+    public Ticket withLatestComments(int count) {
+        if (comments == null || comments.size() <= count) {
+            return this;
+        }
+        return withComments(new LinkedList<>(comments.subList(comments.size() - count, comments.size())));
+    }
+
     @Override
     public String toString() {
         return "Player: " + playerName + "\n"
@@ -270,7 +366,41 @@ public class Ticket {
     public BaseComponent[] toChat(boolean includeComments) {
         // Initialize main ticket component builder
         ComponentBuilder builder = new ComponentBuilder("");
+        appendDetails(builder);
+
+        // Comments
+        if (includeComments) {
+            appendComments(builder, comments, comments == null ? 0 : comments.size(), null);
+        }
+
+        // Build and return as component
+        return builder.create();
+    }
+
+    /**
+     * Convert Ticket to chat message showing a window of its comments
+     *
+     * @param window       comments to show, in order
+     * @param totalCount   number of comments of the ticket
+     * @param olderCommand command showing the comments before the window, null if there are none
+     * @param withDetails  false to only show the comments, e.g. when paging through older comments
+     * @return chat message
+     */
+    public BaseComponent[] toChat(List<TicketComment> window, int totalCount, String olderCommand, boolean withDetails) {
+        ComponentBuilder builder = new ComponentBuilder("");
+        if (withDetails) {
+            appendDetails(builder);
+        } else {
+            builder.bold(true).color(chatKeyColor).append("Ticket #" + id).append(" >>>>>>");
+        }
+        appendComments(builder, window, totalCount, olderCommand);
+        return builder.create();
+    }
 
+    /**
+     * Append ticket fields and message
+     */
+    private void appendDetails(ComponentBuilder builder) {
         builder.bold(true).color(chatKeyColor).append("Ticket #" + id).append(" >>>>>>").append("\n");
 
         // Hover text of player nametag
@@ -296,7 +426,7 @@ public class Ticket {
 
         // Date
         builder.append("Date: ", f).bold(true).color(chatKeyColor);
-        builder.append(dateFormat.format(timestamp), f).append("\n");
+        builder.append(formatDate(timestamp), f).append("\n");
 
         // Server
         builder.append("Server: ", f).bold(true).color(chatKeyColor);
@@ -308,25 +438,34 @@ public class Ticket {
 
         // Message
         builder.append("\n" + body, f);
+    }
 
-        // Comments
-        if (includeComments) {
-            builder.append("\nComments >>>\n", f).bold(true).color(chatKeyColor)
-                    .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND,
-                            "/ticket reply " + id + " "))
+    /**
+     * Append comment section with a link to older comments if there are any
+     */
+    private void appendComments(ComponentBuilder builder, List<TicketComment> window, int totalCount,
+                                String olderCommand) {
+        int shown = window == null ? 0 : window.size();
+        builder.append("\nComments" + (totalCount > shown ? " (" + shown + " of " + totalCount + ")" : "") + " >>>\n", f)
+                .bold(true).color(chatKeyColor)
+                .event(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND,
+                        "/ticket reply " + id + " "))
+                .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+                        new ComponentBuilder("Click to reply").create()));
+        if (olderCommand != null) {
+            builder.append("[Older comments]", f).color(ChatColor.GRAY)
+                    .event(new ClickEvent(ClickEvent.Action.RUN_COMMAND, olderCommand))
                     .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                            new ComponentBuilder("Click to reply").create()));
-            if (comments == null || comments.isEmpty()) {
-                builder.append("None", f).color(chatKeyColor);
-            } else {
-                comments.forEach(comment -> {
-                    builder.append(comment.toChat(), f);
-                    builder.append("\n", f);
-                });
-            }
+                            new ComponentBuilder("Click to show older comments").create()));
+            builder.append("\n", f);
+        }
+        if (window == null || window.isEmpty()) {
+            builder.append("None", f).color(chatKeyColor);
+        } else {
+            window.forEach(comment -> {
+                builder.append(comment.toChat(), f);
+                builder.append("\n", f);
+            });
         }
-
-        // Build and return as component
-        return builder.create();
     }
 }
@@ -0,0 +1,436 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.util.*;
+
+/**
+ * Local ticket store keyed by ticket id, with secondary indexes by open state and player UUID
+ * and a full-text search index.
+ * Entries older than the configured max age are treated as cache misses.
+ */
+class TicketCache {
+    private static final TicketRenderCache renderCache = TicketRenderCache.getInstance();
+
+    private final Map<Integer, Entry> tickets = new HashMap<>();
+
+    // Secondary indexes, ticket ids sorted descending (newest first)
+    private final NavigableSet<Integer> openIds = new TreeSet<>(Comparator.reverseOrder());
+    private final NavigableSet<Integer> closedIds = new TreeSet<>(Comparator.reverseOrder());
+    private final Map<UUID, Set<Integer>> playerIds = new HashMap<>();
+
+    // Open ticket counters per player, maintained on every index change
+    private final Map<UUID, Integer> playerOpenCounts = new HashMap<>();
+
+    private final TicketSearchIndex searchIndex = new TicketSearchIndex();
+
+    // Time at which the store last held every open / every closed ticket of the repository, 0 = never
+    private long openCompleteAt = 0;
+    private long closedCompleteAt = 0;
+
+    // Start time of the last successful sync, every entry reflects GitHub state as of this time
+    private long syncedAt = 0;
+
+    // Max age of entries in milliseconds
+    private long maxAge;
+
+    TicketCache(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    private boolean isFresh(long timestamp) {
+        return timestamp > 0 && System.currentTimeMillis() - timestamp <= maxAge;
+    }
+
+    /**
+     * Get ticket by id
+     *
+     * @param id              Ticket ID
+     * @param includeComments true if the cached ticket must hold its comments
+     * @return cached ticket or null on cache miss
+     */
+    synchronized Ticket get(int id, boolean includeComments) {
+        Entry entry = tickets.get(id);
+        if (entry == null || !isFresh(Math.max(entry.loadedAt, syncedAt))) {
+            return null;
+        }
+        if (includeComments && entry.ticket.getComments() == null) {
+            return null;
+        }
+        return entry.ticket;
+    }
+
+    /**
+     * Insert or replace ticket
+     *
+     * @param ticket Ticket to store
+     */
+    synchronized void put(Ticket ticket) {
+        if (ticket == null) {
+            return;
+        }
+        unindex(ticket.getId());
+        renderCache.invalidate(ticket);
+        searchIndex.index(ticket);
+        tickets.put(ticket.getId(), new Entry(ticket));
+        (ticket.isOpen() ? openIds : closedIds).add(ticket.getId());
+        if (ticket.getPlayerUUID() != null) {
+            playerIds.computeIfAbsent(ticket.getPlayerUUID(), uuid -> new HashSet<>()).add(ticket.getId());
+            if (ticket.isOpen()) {
+                playerOpenCounts.merge(ticket.getPlayerUUID(), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Insert or replace ticket. If the new ticket has no comments loaded, already cached comments are kept
+     * as long as the ticket has not been updated since, otherwise it is stored without comments.
+     *
+     * @param ticket Ticket to store
+     */
+    synchronized void update(Ticket ticket) {
+        if (ticket == null) {
+            return;
+        }
+        Entry previous = tickets.get(ticket.getId());
+        if (ticket.getComments() == null && previous != null && isSameVersion(ticket, previous.ticket)) {
+            ticket.setComments(previous.ticket.getComments());
+        }
+        put(ticket);
+    }
+
+    /**
+     * Insert or replace ticket *without* comments whose comment count is known, keeping cached comments
+     * only if the ticket has not been updated since and the count matches
+     *
+     * @param ticket       Ticket to store
+     * @param commentCount number of comments of the ticket on GitHub
+     */
+    synchronized void update(Ticket ticket, int commentCount) {
+        Entry previous = tickets.get(ticket.getId());
+        if (previous != null && previous.ticket.getComments() != null
+                && previous.ticket.getComments().size() != commentCount) {
+            // Outdated comments are not kept
+            put(ticket);
+            return;
+        }
+        update(ticket);
+    }
+
+    private static boolean isSameVersion(Ticket ticket, Ticket previous) {
+        return ticket.getUpdatedAt() != null && ticket.getUpdatedAt().equals(previous.getUpdatedAt());
+    }
+
+    /**
+     * Store ticket with a new comment. The comment is appended to the cached comments,
+     * if comments are not cached the ticket is stored without them.
+     *
+     * @param ticket  Ticket *without* comments
+     * @param comment new comment
+     */
+    synchronized void addComment(Ticket ticket, TicketComment comment) {
+        Entry previous = tickets.get(ticket.getId());
+        if (previous != null && previous.ticket.getComments() != null) {
+            LinkedList<TicketComment> comments = new LinkedList<>(previous.ticket.getComments());
+            comments.add(comment);
+            ticket.setComments(comments);
+        }
+        put(ticket);
+        searchIndex.addComment(ticket.getId(), comment);
+    }
+
+    /**
+     * Merge ticket from a sync into the store.
+     * Entries written after the sync started are at least as recent and are kept.
+     * Cached comments are kept if the ticket has not been updated since.
+     *
+     * @param ticket    Ticket from sync
+     * @param startedAt Start time of the sync
+     */
+    synchronized void merge(Ticket ticket, long startedAt) {
+        Entry previous = tickets.get(ticket.getId());
+        if (previous != null) {
+            if (previous.loadedAt > startedAt) {
+                return;
+            }
+            if (ticket.getComments() == null && isSameVersion(ticket, previous.ticket)) {
+                ticket.setComments(previous.ticket.getComments());
+            }
+        }
+        put(ticket);
+    }
+
+    /**
+     * Mark store as in sync with GitHub. Previously complete listings become complete again,
+     * as the sync merged every change since.
+     *
+     * @param startedAt Start time of the sync
+     */
+    synchronized void markSynced(long startedAt) {
+        syncedAt = startedAt;
+        if (openCompleteAt > 0) {
+            openCompleteAt = Math.max(openCompleteAt, startedAt);
+        }
+        if (closedCompleteAt > 0) {
+            closedCompleteAt = Math.max(closedCompleteAt, startedAt);
+        }
+    }
+
+    /**
+     * Store a complete ticket listing fetched from GitHub
+     *
+     * @param tickets      Tickets to store
+     * @param filterStatus true if the listing only contains tickets of one status
+     * @param status       status of the listing, true = open, false = closed
+     */
+    synchronized void putAll(Collection<Ticket> tickets, boolean filterStatus, boolean status) {
+        boolean listedOpen = !filterStatus || status;
+        boolean listedClosed = !filterStatus || !status;
+
+        // Drop indexed tickets which are missing from the listing, their state changed elsewhere
+        Set<Integer> listedIds = new HashSet<>();
+        tickets.forEach(ticket -> listedIds.add(ticket.getId()));
+        List<Integer> missing = new ArrayList<>();
+        if (listedOpen) {
+            openIds.stream().filter(id -> !listedIds.contains(id)).forEach(missing::add);
+        }
+        if (listedClosed) {
+            closedIds.stream().filter(id -> !listedIds.contains(id)).forEach(missing::add);
+        }
+        missing.forEach(this::remove);
+
+        tickets.forEach(this::update);
+
+        long now = System.currentTimeMillis();
+        if (listedOpen) {
+            openCompleteAt = now;
+        }
+        if (listedClosed) {
+            closedCompleteAt = now;
+        }
+    }
+
+    /**
+     * Get tickets from index
+     *
+     * @param filterStatus     true to only return tickets matching status
+     * @param status           true = open, false = closed
+     * @param filterPlayerUUID only return tickets of this player, null for all players
+     * @param includeComments  true if the cached tickets must hold their comments
+     * @return tickets sorted by id descending, or null on cache miss
+     */
+    synchronized List<Ticket> getTickets(boolean filterStatus, boolean status, UUID filterPlayerUUID,
+                                         boolean includeComments) {
+        boolean wantOpen = !filterStatus || status;
+        boolean wantClosed = !filterStatus || !status;
+        if ((wantOpen && !isFresh(openCompleteAt)) || (wantClosed && !isFresh(closedCompleteAt))) {
+            return null;
+        }
+
+        Collection<Integer> ids;
+        if (wantOpen && wantClosed) {
+            ids = new TreeSet<>(Comparator.reverseOrder());
+            ids.addAll(openIds);
+            ids.addAll(closedIds);
+        } else {
+            ids = wantOpen ? openIds : closedIds;
+        }
+        Set<Integer> playerFilter = null;
+        if (filterPlayerUUID != null) {
+            playerFilter = playerIds.getOrDefault(filterPlayerUUID, Collections.emptySet());
+        }
+
+        List<Ticket> result = new ArrayList<>();
+        for (Integer id : ids) {
+            if (playerFilter != null && !playerFilter.contains(id)) {
+                continue;
+            }
+            Ticket ticket = tickets.get(id).ticket;
+            if (includeComments && ticket.getComments() == null) {
+                return null;
+            }
+            result.add(ticket);
+        }
+        return result;
+    }
+
+    /**
+     * Get one page of tickets from index, only touching the tickets on that page
+     *
+     * @param status           true = open, false = closed
+     * @param filterPlayerUUID only return tickets of this player, null for all players
+     * @param page             Page number, starting at 1
+     * @param pageSize         Number of tickets per page
+     * @return page of tickets sorted by id descending, or null on cache miss
+     */
+    synchronized TicketPage getPage(boolean status, UUID filterPlayerUUID, int page, int pageSize) {
+        if (!isFresh(status ? openCompleteAt : closedCompleteAt)) {
+            return null;
+        }
+        Set<Integer> playerFilter = null;
+        if (filterPlayerUUID != null) {
+            playerFilter = playerIds.getOrDefault(filterPlayerUUID, Collections.emptySet());
+        }
+
+        int skip = (page - 1) * pageSize;
+        List<Ticket> result = new ArrayList<>(pageSize);
+        for (Integer id : status ? openIds : closedIds) {
+            if (playerFilter != null && !playerFilter.contains(id)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (result.size() == pageSize) {
+                // One more ticket after this page
+                return new TicketPage(result, page, true);
+            }
+            result.add(tickets.get(id).ticket);
+        }
+        return new TicketPage(result, page, false);
+    }
+
+    /**
+     * Get number of open tickets without touching the tickets themselves
+     *
+     * @param filterPlayerUUID only count tickets of this player, null for all players
+     * @return number of open tickets or -1 if the store does not hold every open ticket
+     */
+    synchronized int getOpenCount(UUID filterPlayerUUID) {
+        if (!isFresh(openCompleteAt)) {
+            return -1;
+        }
+        if (filterPlayerUUID == null) {
+            return openIds.size();
+        }
+        return playerOpenCounts.getOrDefault(filterPlayerUUID, 0);
+    }
+
+    /**
+     * Search tickets by words of their body and comments, see {@link TicketSearchIndex#search(String)}.
+     * Searches every stored ticket, also if the store is not complete or outdated.
+     *
+     * @param query            search query
+     * @param filterPlayerUUID only return tickets of this player, null for all players
+     * @return matching tickets sorted by id descending
+     */
+    synchronized List<Ticket> search(String query, UUID filterPlayerUUID) {
+        Set<Integer> playerFilter = null;
+        if (filterPlayerUUID != null) {
+            playerFilter = playerIds.getOrDefault(filterPlayerUUID, Collections.emptySet());
+        }
+        List<Integer> ids = new ArrayList<>(searchIndex.search(query));
+        ids.sort(Comparator.reverseOrder());
+        List<Ticket> result = new ArrayList<>();
+        for (Integer id : ids) {
+            if (playerFilter == null || playerFilter.contains(id)) {
+                result.add(tickets.get(id).ticket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove ticket from store and all indexes
+     *
+     * @param id Ticket ID
+     */
+    synchronized void remove(int id) {
+        unindex(id);
+        searchIndex.remove(id);
+        renderCache.invalidate(id);
+    }
+
+    private void unindex(int id) {
+        Entry entry = tickets.remove(id);
+        if (entry == null) {
+            return;
+        }
+        openIds.remove(id);
+        closedIds.remove(id);
+        UUID uuid = entry.ticket.getPlayerUUID();
+        if (uuid != null && entry.ticket.isOpen()) {
+            playerOpenCounts.computeIfPresent(uuid, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        if (uuid != null) {
+            Set<Integer> ids = playerIds.get(uuid);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    playerIds.remove(uuid);
+                }
+            }
+        }
+    }
+
+    synchronized void clear() {
+        renderCache.clear();
+        searchIndex.clear();
+        tickets.clear();
+        openIds.clear();
+        closedIds.clear();
+        playerIds.clear();
+        playerOpenCounts.clear();
+        openCompleteAt = 0;
+        closedCompleteAt = 0;
+        syncedAt = 0;
+    }
+
+    /**
+     * Copy store contents for an on-disk snapshot. Provisional tickets are left out, their ids are not final.
+     *
+     * @param highWaterMark high-water mark of the sync, to be read *before* the store is copied
+     * @return snapshot of the store
+     */
+    synchronized TicketSnapshot snapshot(Date highWaterMark) {
+        Map<Ticket, Long> entries = new LinkedHashMap<>();
+        Map<Integer, Set<String>> commentTerms = new HashMap<>();
+        for (Entry entry : tickets.values()) {
+            if (!Ticket.isProvisionalId(entry.ticket.getId())) {
+                entries.put(entry.ticket, entry.loadedAt);
+                // Search terms of comments which are not in the snapshot themselves
+                Set<String> terms = searchIndex.getCommentTerms(entry.ticket.getId());
+                if (entry.ticket.getComments() == null && !terms.isEmpty()) {
+                    commentTerms.put(entry.ticket.getId(), new HashSet<>(terms));
+                }
+            }
+        }
+        return new TicketSnapshot(entries, commentTerms, syncedAt, openCompleteAt, closedCompleteAt,
+                highWaterMark);
+    }
+
+    /**
+     * Replace store contents with a snapshot. Entries keep their original load time,
+     * so an old snapshot is served only once a sync caught up with GitHub.
+     *
+     * @param snapshot snapshot to restore
+     */
+    synchronized void restore(TicketSnapshot snapshot) {
+        clear();
+        snapshot.tickets.forEach((ticket, loadedAt) -> {
+            put(ticket);
+            tickets.put(ticket.getId(), new Entry(ticket, loadedAt));
+        });
+        snapshot.commentTerms.forEach(searchIndex::addCommentTerms);
+        syncedAt = snapshot.syncedAt;
+        openCompleteAt = snapshot.openCompleteAt;
+        closedCompleteAt = snapshot.closedCompleteAt;
+    }
+
+    private static class Entry {
+        private final Ticket ticket;
+        private final long loadedAt;
+
+        private Entry(Ticket ticket) {
+            this(ticket, System.currentTimeMillis());
+        }
+
+        private Entry(Ticket ticket, long loadedAt) {
+            this.ticket = ticket;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of tickets and comments.
+ * <br>
+ * Strings are length-prefixed UTF-8 (length -1 for null), UUIDs are a presence flag and two longs,
+ * dates are epoch milliseconds. Used for messages between servers and on-disk files.
+ */
+public class TicketCodec {
+    private static final long noDate = Long.MIN_VALUE;
+    // Upper bound for a single string, guards against reading corrupt data
+    private static final int maxStringLength = 1024 * 1024;
+
+    /**
+     * Write ticket
+     *
+     * @param out             output to write to
+     * @param ticket          Ticket to write
+     * @param includeComments true to write comments, false to read the ticket back *without* comments
+     * @throws IOException on write error
+     */
+    public void writeTicket(DataOutput out, Ticket ticket, boolean includeComments) throws IOException {
+        out.writeInt(ticket.getId());
+        out.writeBoolean(ticket.isOpen());
+        writeDate(out, ticket.getTimestamp());
+        writeDate(out, ticket.getUpdatedAt());
+        writeUUID(out, ticket.getPlayerUUID());
+        writeString(out, ticket.getPlayerName());
+        writeName(out, ticket.getServerName());
+        writeName(out, ticket.getWorldName());
+        out.writeDouble(ticket.getLocation().getX());
+        out.writeDouble(ticket.getLocation().getY());
+        out.writeDouble(ticket.getLocation().getZ());
+        writeString(out, ticket.getBody());
+
+        LinkedList<TicketComment> comments = includeComments ? ticket.getComments() : null;
+        out.writeInt(comments == null ? -1 : comments.size());
+        if (comments != null) {
+            for (TicketComment comment : comments) {
+                writeComment(out, comment);
+            }
+        }
+    }
+
+    /**
+     * Read ticket written by {@link #writeTicket(DataOutput, Ticket, boolean)}
+     *
+     * @param in input to read from
+     * @return Ticket, comments are null if they were not written
+     * @throws IOException on read error or corrupt data
+     */
+    public Ticket readTicket(DataInput in) throws IOException {
+        int id = in.readInt();
+        boolean open = in.readBoolean();
+        Date timestamp = readDate(in);
+        Date updatedAt = readDate(in);
+        UUID playerUUID = readUUID(in);
+        String playerName = readString(in);
+        String serverName = readName(in);
+        String worldName = readName(in);
+        Location location = new Location(in.readDouble(), in.readDouble(), in.readDouble());
+        String body = readString(in);
+
+        Ticket ticket;
+        try {
+            ticket = new Ticket(id, open, timestamp, playerUUID, playerName, serverName, worldName, location, body);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid ticket #" + id, ex);
+        }
+        ticket.setUpdatedAt(updatedAt);
+
+        int commentCount = in.readInt();
+        if (commentCount < 0) {
+            ticket.setComments(null);
+        } else {
+            LinkedList<TicketComment> comments = new LinkedList<>();
+            for (int i = 0; i < commentCount; i++) {
+                comments.add(readComment(in));
+            }
+            ticket.setComments(comments);
+        }
+        return ticket;
+    }
+
+    public void writeComment(DataOutput out, TicketComment comment) throws IOException {
+        writeDate(out, comment.getTimestamp());
+        writeUUID(out, comment.getPlayerUUID());
+        writeString(out, comment.getDisplayName());
+        writeString(out, comment.getBody());
+    }
+
+    public TicketComment readComment(DataInput in) throws IOException {
+        Date timestamp = readDate(in);
+        UUID playerUUID = readUUID(in);
+        String displayName = readString(in);
+        String body = readString(in);
+        try {
+            return new TicketComment(timestamp, playerUUID, displayName, body);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid ticket comment", ex);
+        }
+    }
+
+    /**
+     * Write server or world name. These repeat across tickets, subclasses may write a reference instead.
+     */
+    protected void writeName(DataOutput out, String name) throws IOException {
+        writeString(out, name);
+    }
+
+    protected String readName(DataInput in) throws IOException {
+        return readString(in);
+    }
+
+    public static void writeUUID(DataOutput out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    public static UUID readUUID(DataInput in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    // Unlike writeUTF, not limited to 64k and able to represent null
+    public static void writeString(DataOutput out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > maxStringLength) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeDate(DataOutput out, Date date) throws IOException {
+        out.writeLong(date == null ? noDate : date.getTime());
+    }
+
+    public static Date readDate(DataInput in) throws IOException {
+        long time = in.readLong();
+        return time == noDate ? null : new Date(time);
+    }
+}
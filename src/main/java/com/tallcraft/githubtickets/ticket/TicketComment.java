@@ -74,7 +74,7 @@ public class TicketComment {
         }
 
         commentHoverText.append("Time: ", f).bold(true).color(Ticket.chatKeyColor);
-        commentHoverText.append(Ticket.dateFormat.format(timestamp), f);
+        commentHoverText.append(Ticket.formatDate(timestamp), f);
 
         HoverEvent commentHoverEvent = new HoverEvent(HoverEvent.Action.SHOW_TEXT, commentHoverText.create());
 
@@ -1,13 +1,24 @@
 package com.tallcraft.githubtickets.ticket;
 
+import com.tallcraft.githubtickets.Metrics;
 import com.tallcraft.githubtickets.TicketNotifier;
 import com.tallcraft.githubtickets.github.GitHubController;
+import com.tallcraft.githubtickets.github.WebhookReceiver;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -16,13 +27,47 @@ import java.util.stream.Stream;
  */
 public class TicketController {
     private static final TicketNotifier ticketNotifier = TicketNotifier.getInstance();
+    private static final Metrics metrics = Metrics.getInstance();
 
     private static final GitHubController githubController = GitHubController.getInstance();
+
+    // Comment window cursors, GraphQL cursors or the index of the first comment of the newer window
+    private static final String graphQLCursorPrefix = "g";
+    private static final String indexCursorPrefix = "i";
     private static TicketController ourInstance = new TicketController();
 
+    // Local ticket store, reads are served from here and only misses go to GitHub
+    private final TicketCache ticketCache = new TicketCache(5 * 60 * 1000);
+    private final TicketSync ticketSync = new TicketSync(this);
+
+    // Serializes snapshot writes of the periodic task and shutdown
+    private final Object snapshotLock = new Object();
+
+    // Journal for ticket writes, null until started
+    private volatile TicketOutbox outbox;
+
+    // Listeners for changes made on this server
+    private final List<TicketEventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+    // Receiver for pushed ticket changes, null if not started
+    private WebhookReceiver webhookReceiver;
+
+    // Executor for blocking GitHub I/O, null until started
+    private volatile TicketExecutor executor;
+
+    // Max number of GitHub writes of a bulk operation running at the same time
+    private volatile int bulkParallelism = 4;
+
     // Server name overwrite variable
     private String serverName;
 
+    /**
+     * Blocking operation run by the async methods
+     */
+    public interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
 
     public static TicketController getInstance() {
         return ourInstance;
@@ -38,16 +83,337 @@ public class TicketController {
         this.serverName = serverName;
     }
 
+    /**
+     * Set max age of locally cached tickets
+     *
+     * @param maxAge max age in milliseconds
+     */
+    public void setCacheMaxAge(long maxAge) {
+        ticketCache.setMaxAge(maxAge);
+    }
+
+    /**
+     * Set number of tickets a bulk operation changes at the same time
+     *
+     * @param parallelism max number of concurrent GitHub writes per bulk operation
+     */
+    public void setBulkParallelism(int parallelism) {
+        this.bulkParallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Get background task which keeps the local ticket store in sync with GitHub
+     *
+     * @return sync task, to be scheduled by the plugin
+     */
+    public TicketSync getSync() {
+        return ticketSync;
+    }
+
+    /**
+     * Merge result of a sync into local ticket store
+     *
+     * @param tickets   Tickets updated since the last sync
+     * @param complete  true if the result holds every ticket of the repository
+     * @param startedAt Start time of the sync
+     */
+    void mergeSynced(List<Ticket> tickets, boolean complete, long startedAt) {
+        if (complete) {
+            ticketCache.putAll(tickets, false, false);
+        } else {
+            tickets.forEach(ticket -> ticketCache.merge(ticket, startedAt));
+        }
+        ticketCache.markSynced(startedAt);
+    }
+
+    /**
+     * Write local ticket store to disk
+     *
+     * @param file snapshot file
+     * @throws IOException on write error
+     */
+    public void saveSnapshot(File file) throws IOException {
+        synchronized (snapshotLock) {
+            // Read mark first, the copied store is then at least as recent as the mark
+            Date highWaterMark = ticketSync.getHighWaterMark();
+            ticketCache.snapshot(highWaterMark).write(file);
+        }
+    }
+
+    /**
+     * Fill local ticket store from a snapshot written by {@link #saveSnapshot(File)}.
+     * Must be called before the sync is started, the sync then continues from the snapshot.
+     *
+     * @param file snapshot file
+     * @return number of restored tickets, 0 if there is no snapshot
+     * @throws IOException on read error or corrupt snapshot
+     */
+    public int loadSnapshot(File file) throws IOException {
+        synchronized (snapshotLock) {
+            TicketSnapshot snapshot = TicketSnapshot.read(file);
+            if (snapshot == null) {
+                return 0;
+            }
+            ticketCache.restore(snapshot);
+            ticketSync.setHighWaterMark(snapshot.highWaterMark);
+            return snapshot.tickets.size();
+        }
+    }
+
+    /**
+     * Start dedicated executor for the async methods. Until started, they run on the common pool.
+     *
+     * @param maxConcurrency max number of GitHub operations running at the same time
+     */
+    public void startExecutor(int maxConcurrency) {
+        executor = new TicketExecutor(maxConcurrency);
+    }
+
+    /**
+     * Stop executor, waiting a few seconds for running operations to finish
+     */
+    public void stopExecutor() {
+        TicketExecutor oldExecutor = executor;
+        executor = null;
+        if (oldExecutor != null) {
+            oldExecutor.shutdown(5000);
+        }
+    }
+
+    /**
+     * Get executor for blocking GitHub I/O
+     *
+     * @return dedicated executor, or the common pool if not started
+     */
+    public Executor getExecutor() {
+        Executor current = executor;
+        return current == null ? ForkJoinPool.commonPool() : current;
+    }
+
+    /**
+     * Run blocking operation on the I/O executor
+     *
+     * @param supplier operation to run
+     * @return future completed with the result, or exceptionally with the IOException of the operation
+     */
+    public <T> CompletableFuture<T> supplyAsync(IOSupplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return supplier.get();
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, getExecutor());
+    }
+
+    /**
+     * Start outbox for ticket writes. Until started, writes go to GitHub synchronously.
+     *
+     * @param journalFile file to journal writes in
+     * @throws IOException if the journal can't be loaded
+     */
+    public void startOutbox(File journalFile) throws IOException {
+        TicketOutbox newOutbox = new TicketOutbox(journalFile, new TicketOutbox.Replayer() {
+            @Override
+            public int create(Ticket ticket, int provisionalId) throws IOException {
+                Ticket created = writeTicket(ticket);
+                ticketNotifier.onProvisionalTicketCreated(created, provisionalId);
+                return created.getId();
+            }
+
+            @Override
+            public void comment(int id, TicketComment comment) throws IOException {
+                if (writeComment(id, comment) == null) {
+                    throw new FileNotFoundException("Ticket #" + id + " not found");
+                }
+            }
+
+            @Override
+            public void changeStatus(int id, boolean open, UUID actor) throws IOException {
+                if (writeStatus(id, open, actor) == null) {
+                    throw new FileNotFoundException("Ticket #" + id + " not found");
+                }
+            }
+        });
+        newOutbox.start();
+        outbox = newOutbox;
+    }
+
+    /**
+     * Stop outbox worker, pending writes are replayed after the next start
+     */
+    public void stopOutbox() {
+        if (outbox != null) {
+            outbox.stop();
+            outbox = null;
+        }
+    }
+
+    /**
+     * Register listener for ticket changes made on this server
+     *
+     * @param listener listener to add
+     */
+    public void addEventListener(TicketEventListener listener) {
+        eventListeners.add(listener);
+    }
+
+    public void removeEventListener(TicketEventListener listener) {
+        eventListeners.remove(listener);
+    }
+
+    /**
+     * Apply ticket created elsewhere (another server or GitHub) to the local store and notify players
+     *
+     * @param ticket    created ticket
+     * @param propagate true to pass the change on to event listeners
+     */
+    public void applyTicketCreated(Ticket ticket, boolean propagate) {
+        ticketCache.update(ticket);
+        ticketNotifier.onNewTicket(ticket);
+        if (propagate) {
+            eventListeners.forEach(listener -> listener.onTicketCreated(ticket));
+        }
+    }
+
+    /**
+     * Apply comment made elsewhere (another server or GitHub) to the local store and notify players
+     *
+     * @param ticket    commented ticket *without* comments
+     * @param comment   new comment
+     * @param propagate true to pass the change on to event listeners
+     */
+    public void applyTicketComment(Ticket ticket, TicketComment comment, boolean propagate) {
+        ticketCache.addComment(ticket, comment);
+        ticketNotifier.onTicketComment(ticket, comment);
+        if (propagate) {
+            eventListeners.forEach(listener -> listener.onTicketComment(ticket, comment));
+        }
+    }
+
+    /**
+     * Apply status change made elsewhere (another server or GitHub) to the local store and notify players
+     *
+     * @param ticket    ticket with new status
+     * @param actor     UUID of player who changed the status, may be null
+     * @param propagate true to pass the change on to event listeners
+     */
+    public void applyTicketStatusChange(Ticket ticket, UUID actor, boolean propagate) {
+        ticketCache.update(ticket);
+        ticketNotifier.onTicketStatusChange(ticket, actor);
+        if (propagate) {
+            eventListeners.forEach(listener -> listener.onTicketStatusChange(ticket, actor));
+        }
+    }
+
+    /**
+     * Apply status change of multiple tickets to the local store and send one summary notification
+     *
+     * @param tickets   tickets with new status
+     * @param open      new status, true = open, false = closed
+     * @param actor     UUID of player who changed the status, may be null
+     * @param propagate true to pass the change on to event listeners
+     */
+    public void applyTicketsStatusChange(List<Ticket> tickets, boolean open, UUID actor, boolean propagate) {
+        tickets.forEach(ticketCache::update);
+        ticketNotifier.onTicketsStatusChange(tickets, open, actor);
+        if (propagate) {
+            eventListeners.forEach(listener -> listener.onTicketsStatusChange(tickets, open, actor));
+        }
+    }
+
+    /**
+     * Start listening for GitHub webhook deliveries, changes are applied to the local ticket store
+     * and notified like local changes.
+     *
+     * @param address address to listen on
+     * @param path    url path of the webhook
+     * @param secret  webhook secret
+     * @throws IOException if the address can't be bound
+     */
+    public void startWebhook(InetSocketAddress address, String path, String secret) throws IOException {
+        WebhookReceiver receiver = new WebhookReceiver(address, path, secret, new WebhookReceiver.Listener() {
+            @Override
+            public void onTicketChanged(Ticket ticket, String action, boolean fromSelf) {
+                // Changes made by the plugin were already notified and passed on
+                if (fromSelf) {
+                    ticketCache.update(ticket);
+                } else if ("opened".equals(action)) {
+                    applyTicketCreated(ticket, true);
+                } else if ("closed".equals(action) || "reopened".equals(action)) {
+                    applyTicketStatusChange(ticket, null, true);
+                } else {
+                    ticketCache.update(ticket);
+                }
+            }
+
+            @Override
+            public void onTicketDeleted(int id) {
+                ticketCache.remove(id);
+            }
+
+            @Override
+            public void onTicketComment(Ticket ticket, TicketComment comment, String action, boolean fromSelf) {
+                if (!"created".equals(action)) {
+                    // Edited or deleted, cached comments are outdated
+                    ticketCache.put(ticket);
+                } else if (fromSelf) {
+                    ticketCache.addComment(ticket, comment);
+                } else {
+                    applyTicketComment(ticket, comment, true);
+                }
+            }
+        });
+        receiver.setSelfLogin(githubController.getSelfLogin());
+        receiver.start();
+        webhookReceiver = receiver;
+    }
+
+    public void stopWebhook() {
+        if (webhookReceiver != null) {
+            webhookReceiver.stop();
+            webhookReceiver = null;
+        }
+    }
+
+    /**
+     * Resolve ticket id which may be provisional
+     *
+     * @param id Ticket ID, possibly provisional
+     * @return real ticket id or null if the ticket is not created on GitHub yet
+     */
+    public Integer resolveTicketId(int id) {
+        if (!Ticket.isProvisionalId(id)) {
+            return id;
+        }
+        return outbox == null ? null : outbox.resolve(id);
+    }
+
     /**
      * Create Ticket
      *
      * @param ticket Ticket Object
-     * @return Ticket ID
+     * @return Ticket ID, provisional if the write was journaled
      */
     private int createTicket(Ticket ticket) throws IOException {
-        ticket = githubController.createTicket(ticket);
-        ticketNotifier.onNewTicket(ticket);
-        return ticket.getId();
+        if (outbox != null) {
+            return outbox.create(ticket);
+        }
+        return writeTicket(ticket).getId();
+    }
+
+    /**
+     * Create ticket on GitHub
+     *
+     * @param ticket Ticket Object
+     * @return created ticket
+     */
+    private Ticket writeTicket(Ticket ticket) throws IOException {
+        Ticket created = githubController.createTicket(ticket);
+        ticketCache.put(created);
+        ticketNotifier.onNewTicket(created);
+        eventListeners.forEach(listener -> listener.onTicketCreated(created));
+        return created;
     }
 
     /**
@@ -59,14 +425,31 @@ public class TicketController {
      * @return Ticket ID
      */
     public int createTicket(Player player, Date timestamp, String message) throws IOException {
+        return createTicket(newTicket(player, timestamp, message));
+    }
+
+    /**
+     * Create Ticket on the I/O executor. Player data is read on the calling thread.
+     *
+     * @param player    Name of player who created the ticket
+     * @param timestamp Time of ticket creation
+     * @param message   Ticket message
+     * @return future completed with the Ticket ID
+     */
+    public CompletableFuture<Integer> createTicketAsync(Player player, Date timestamp, String message) {
+        Ticket ticket = newTicket(player, timestamp, message);
+        return supplyAsync(() -> createTicket(ticket));
+    }
+
+    private Ticket newTicket(Player player, Date timestamp, String message) {
         org.bukkit.Location l = player.getLocation();
         Location playerLocation = new Location(l.getBlockX(), l.getBlockY(), l.getBlockZ());
 
-        return createTicket(timestamp, player.getUniqueId(), player.getName(), Bukkit.getServer().getName(), player.getWorld().getName(), playerLocation, message);
+        return newTicket(timestamp, player.getUniqueId(), player.getName(), Bukkit.getServer().getName(), player.getWorld().getName(), playerLocation, message);
     }
 
     /**
-     * Create Ticket
+     * Build Ticket object
      *
      * @param timestamp  Time of ticket creation
      * @param playerUUID Unique identifier of player who created ticket
@@ -75,43 +458,267 @@ public class TicketController {
      * @param worldName  Name of world ticket was created in
      * @param location   Location ticket was created in
      * @param body       Ticket text
-     * @return Ticket ID
+     * @return Ticket object without ID
      */
-    private int createTicket(Date timestamp, UUID playerUUID, String playerName, String serverName, String worldName, Location location, String body) throws IOException {
+    private Ticket newTicket(Date timestamp, UUID playerUUID, String playerName, String serverName, String worldName, Location location, String body) {
         // If server name is set in ticket controller overwrite server getter
         String serverNameOverride = this.serverName == null ? serverName : this.serverName;
-        Ticket ticket = new Ticket(timestamp, playerUUID, ChatColor.stripColor(playerName), serverNameOverride, worldName, location, body);
-        return createTicket(ticket);
+        return new Ticket(timestamp, playerUUID, ChatColor.stripColor(playerName), serverNameOverride, worldName, location, body);
     }
 
-    public Ticket replyTicket(int id, Player player, String message) throws IOException {
+    /**
+     * Reply to ticket. The write is journaled and sent to GitHub in the background if the outbox is started.
+     *
+     * @param id      Ticket ID
+     * @param player  Player who replied
+     * @param message Reply text
+     * @return journaled, or the modified ticket if sent directly
+     */
+    public WriteResult replyTicket(int id, Player player, String message) throws IOException {
         TicketComment comment = new TicketComment(null, player.getUniqueId(), ChatColor.stripColor(player.getDisplayName()), message);
+        TicketOutbox outbox = this.outbox;
+        if (outbox != null) {
+            outbox.comment(id, comment);
+            return WriteResult.journaled();
+        }
+        return WriteResult.written(writeComment(id, comment));
+    }
+
+    /**
+     * Reply to ticket on the I/O executor
+     *
+     * @param id      Ticket ID
+     * @param player  Player who replied
+     * @param message Reply text
+     * @return future completed when the reply is journaled or sent
+     */
+    public CompletableFuture<WriteResult> replyTicketAsync(int id, Player player, String message) {
+        return supplyAsync(() -> replyTicket(id, player, message));
+    }
+
+    /**
+     * Add comment to ticket on GitHub
+     *
+     * @return modified ticket or null if ticket id not found
+     */
+    private Ticket writeComment(int id, TicketComment comment) throws IOException {
         Ticket ticket = githubController.addTicketComment(id, comment);
         if (ticket != null) {
+            ticketCache.addComment(ticket, comment);
             ticketNotifier.onTicketComment(ticket, comment);
+            eventListeners.forEach(listener -> listener.onTicketComment(ticket, comment));
         }
         return ticket;
     }
 
     /**
-     * Change ticket status
+     * Change ticket status. The write is journaled and sent to GitHub in the background if the outbox is started.
+     *
+     * @param id    Ticket ID
+     * @param open  true = open, false = closed
+     * @param actor UUID of player who changed the status, can be null if actor is not a player.
+     * @return journaled, or the modified ticket if sent directly
+     */
+    public WriteResult changeTicketStatus(int id, boolean open, UUID actor) throws IOException {
+        TicketOutbox outbox = this.outbox;
+        if (outbox != null) {
+            outbox.changeStatus(id, open, actor);
+            return WriteResult.journaled();
+        }
+        return WriteResult.written(writeStatus(id, open, actor));
+    }
+
+    /**
+     * Change ticket status on the I/O executor
      *
      * @param id    Ticket ID
      * @param open  true = open, false = closed
      * @param actor UUID of player who changed the status, can be null if actor is not a player.
+     * @return future completed when the change is journaled or sent
+     */
+    public CompletableFuture<WriteResult> changeTicketStatusAsync(int id, boolean open, UUID actor) {
+        return supplyAsync(() -> changeTicketStatus(id, open, actor));
+    }
+
+    /**
+     * Change status of multiple tickets on the I/O executor. Up to the bulk parallelism tickets are changed
+     * at the same time and players get one summary notification instead of one per ticket.
+     * <br>
+     * Changes go to GitHub directly rather than through the outbox, whose journal is replayed one entry at a time.
+     * Failed tickets are reported in the result, running the same bulk operation again retries them.
+     *
+     * @param ids   Ticket IDs
+     * @param open  true = open, false = closed
+     * @param actor UUID of player who changed the status, can be null if actor is not a player.
+     * @return future completed with the outcome once every ticket was processed
+     */
+    public CompletableFuture<BulkResult> changeTicketStatusBulk(Collection<Integer> ids, boolean open, UUID actor) {
+        BulkResult result = new BulkResult();
+        Queue<Integer> queue = new ConcurrentLinkedQueue<>(ids);
+        int workers = Math.min(bulkParallelism, ids.size());
+
+        // Each worker takes the next ticket once its previous write is done
+        CompletableFuture<?>[] futures = new CompletableFuture[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                Integer id;
+                while ((id = queue.poll()) != null) {
+                    try {
+                        Ticket ticket = githubController.changeTicketStatus(id, open);
+                        if (ticket == null) {
+                            result.addNotFound(id);
+                            continue;
+                        }
+                        result.addChanged(ticket);
+                    } catch (IOException | RuntimeException ex) {
+                        ex.printStackTrace();
+                        result.addFailed(id);
+                    }
+                }
+            }, getExecutor());
+        }
+
+        return CompletableFuture.allOf(futures).thenApply(done -> {
+            result.sort();
+            List<Ticket> changed = result.getChanged();
+            if (!changed.isEmpty()) {
+                applyTicketsStatusChange(changed, open, actor, true);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Change ticket status on GitHub
+     *
      * @return ticket object modified, or null if not found
      */
-    public Ticket changeTicketStatus(int id, boolean open, UUID actor) throws IOException {
+    private Ticket writeStatus(int id, boolean open, UUID actor) throws IOException {
         Ticket ticket = githubController.changeTicketStatus(id, open);
         if (ticket != null) {
+            ticketCache.update(ticket);
             ticketNotifier.onTicketStatusChange(ticket, actor);
+            eventListeners.forEach(listener -> listener.onTicketStatusChange(ticket, actor));
         }
         return ticket;
     }
 
 
+    /**
+     * Get ticket including comments, from local store if possible
+     *
+     * @param id Ticket ID
+     * @return ticket object or null if not found
+     */
     public Ticket getTicket(int id) throws IOException {
-        return githubController.getTicket(id);
+        return getTicket(id, TicketProjection.FULL);
+    }
+
+    /**
+     * Get part of a ticket, from local store if possible
+     *
+     * @param id         Ticket ID
+     * @param projection part of the ticket needed, e.g. HEADER for permission checks
+     * @return ticket object with the comments of the projection or null if not found
+     */
+    public Ticket getTicket(int id, TicketProjection projection) throws IOException {
+        Ticket ticket = ticketCache.get(id, projection.includesComments());
+        metrics.recordHit("ticketStore", ticket != null);
+        if (ticket != null) {
+            return projection.isFull() || !projection.includesComments() ? ticket
+                    : ticket.withLatestComments(projection.getCommentLimit());
+        }
+        ticket = githubController.getTicket(id, projection);
+        if (ticket == null || projection.isFull()) {
+            ticketCache.put(ticket);
+        } else {
+            // Only complete comment lists are stored, cached comments are kept if the ticket wasn't updated since
+            ticketCache.update(projection.includesComments() ? ticket.withComments(null) : ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Get a window of the comments of a ticket, the latest ones or the ones before a cursor.
+     * Tickets with all comments in the local store are windowed locally. Otherwise only the window is fetched
+     * if the GraphQL API is enabled, the REST API fetches all comments into the store once.
+     *
+     * @param id     Ticket ID
+     * @param before cursor from {@link CommentWindow#getOlderCursor()}, null for the latest comments
+     * @param size   max number of comments, at most 100
+     * @return comment window or null if the ticket was not found
+     * @throws IOException If an error occurs during api communication
+     */
+    public CommentWindow getCommentWindow(int id, String before, int size) throws IOException {
+        boolean graphQLCursor = before != null && before.startsWith(graphQLCursorPrefix);
+        Ticket ticket = ticketCache.get(id, true);
+        metrics.recordHit("ticketStore", ticket != null);
+
+        if (githubController.isUsingGraphQL() && (graphQLCursor || (ticket == null && before == null))) {
+            CommentWindow window = githubController.getCommentWindow(id, size,
+                    graphQLCursor ? before.substring(graphQLCursorPrefix.length()) : null);
+            if (window == null) {
+                return null;
+            }
+            // Window ticket has no comments, cached comments are kept if they match its version and count
+            ticketCache.update(window.getTicket(), window.getTotalCount());
+            String olderCursor = window.getOlderCursor() == null ? null
+                    : graphQLCursorPrefix + window.getOlderCursor();
+            return new CommentWindow(window.getTicket(), window.getComments(), window.getTotalCount(), olderCursor,
+                    window.isLatest());
+        }
+
+        if (ticket == null) {
+            ticket = githubController.getTicket(id);
+            ticketCache.put(ticket);
+            if (ticket == null) {
+                return null;
+            }
+        }
+        List<TicketComment> comments = ticket.getComments() == null ? Collections.emptyList() : ticket.getComments();
+        int end = comments.size();
+        if (before != null && before.startsWith(indexCursorPrefix)) {
+            try {
+                end = Math.max(0, Math.min(end, Integer.parseInt(before.substring(indexCursorPrefix.length()))));
+            } catch (NumberFormatException ignored) {
+                // Malformed cursor, show latest comments
+            }
+        }
+        int start = Math.max(0, end - size);
+        return new CommentWindow(ticket, new ArrayList<>(comments.subList(start, end)), comments.size(),
+                start > 0 ? indexCursorPrefix + start : null, end == comments.size());
+    }
+
+    /**
+     * Get ticket including comments on the I/O executor
+     *
+     * @param id Ticket ID
+     * @return future completed with the ticket or null if not found
+     */
+    public CompletableFuture<Ticket> getTicketAsync(int id) {
+        return supplyAsync(() -> getTicket(id));
+    }
+
+    /**
+     * Search tickets of the local ticket store by words of their body and comments, without API calls.
+     * Comments are only searched once they were loaded, e.g. by showing the ticket or replying to it.
+     *
+     * @param query            words to search for, each matching words starting with it
+     * @param filterPlayerUUID only return tickets of this player, null for all players
+     * @return matching open and closed tickets sorted by id descending (newest first)
+     */
+    public List<Ticket> searchTickets(String query, UUID filterPlayerUUID) {
+        return ticketCache.search(query, filterPlayerUUID);
+    }
+
+    /**
+     * Get number of open tickets from local ticket store, without API calls
+     *
+     * @param filterPlayerUUID only count tickets of this player, null for all players
+     * @return number of open tickets or -1 if the local store is not warm yet
+     */
+    public int getCachedOpenTicketCount(UUID filterPlayerUUID) {
+        return ticketCache.getOpenCount(filterPlayerUUID);
     }
 
     /**
@@ -125,12 +732,19 @@ public class TicketController {
 
     public List<Ticket> getTickets(boolean sorted, boolean filterStatus,
                                    boolean status, UUID filterPlayerUUID, boolean includeComments) throws IOException {
-        List<Ticket> tickets;
+        // Index is already sorted by id descending
+        List<Ticket> tickets = ticketCache.getTickets(filterStatus, status, filterPlayerUUID, includeComments);
+        metrics.recordHit("ticketStore", tickets != null);
+        if (tickets != null) {
+            return tickets;
+        }
+
         if (filterStatus) {
             tickets = githubController.getTickets(status, includeComments);
         } else {
             tickets = githubController.getTickets(includeComments);
         }
+        ticketCache.putAll(tickets, filterStatus, status);
         if (!sorted && filterPlayerUUID == null) {
             return tickets;
         }
@@ -142,6 +756,58 @@ public class TicketController {
             ticketStream = ticketStream.filter((ticket) -> ticket.getPlayerUUID()
                     .equals(filterPlayerUUID));
         }
-        return ticketStream.collect(Collectors.toCollection(LinkedList::new));
+        return ticketStream.collect(Collectors.toList());
+    }
+
+    /**
+     * Get tickets on the I/O executor, see {@link #getTickets(boolean, boolean, boolean, UUID, boolean)}
+     *
+     * @return future completed with the list of tickets
+     */
+    public CompletableFuture<List<Ticket>> getTicketsAsync(boolean sorted, boolean filterStatus,
+                                                           boolean status, UUID filterPlayerUUID, boolean includeComments) {
+        return supplyAsync(() -> getTickets(sorted, filterStatus, status, filterPlayerUUID, includeComments));
+    }
+
+    /**
+     * Get one page of tickets on the I/O executor, see {@link #getTicketPage(boolean, UUID, int, int)}
+     *
+     * @return future completed with the page
+     */
+    public CompletableFuture<TicketPage> getTicketPageAsync(boolean status, UUID filterPlayerUUID, int page, int pageSize) {
+        return supplyAsync(() -> getTicketPage(status, filterPlayerUUID, page, pageSize));
+    }
+
+    /**
+     * Get one page of tickets sorted by id descending *without* comments.
+     * Only the tickets of the requested page are fetched from GitHub, unless a player filter is set
+     * and the local ticket store is not warm yet.
+     *
+     * @param status           true = open, false = closed
+     * @param filterPlayerUUID only list tickets of this player, null for all players
+     * @param page             Page number, starting at 1
+     * @param pageSize         Number of tickets per page
+     * @return page of tickets
+     */
+    public TicketPage getTicketPage(boolean status, UUID filterPlayerUUID, int page, int pageSize) throws IOException {
+        if (page < 1) {
+            throw new IllegalArgumentException("page must be positive");
+        }
+        TicketPage ticketPage = ticketCache.getPage(status, filterPlayerUUID, page, pageSize);
+        metrics.recordHit("ticketStore", ticketPage != null);
+        if (ticketPage != null) {
+            return ticketPage;
+        }
+        if (filterPlayerUUID == null) {
+            ticketPage = githubController.getTicketPage(status, page, pageSize);
+            ticketPage.getTickets().forEach(ticketCache::update);
+            return ticketPage;
+        }
+
+        // GitHub can't filter by player, fetch listing once, following pages are served from the local store
+        List<Ticket> tickets = getTickets(true, true, status, filterPlayerUUID, false);
+        int from = Math.min((page - 1) * pageSize, tickets.size());
+        int to = Math.min(from + pageSize, tickets.size());
+        return new TicketPage(new ArrayList<>(tickets.subList(from, to)), page, to < tickets.size());
     }
 }
@@ -0,0 +1,35 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Receives ticket changes made on this server, e.g. to pass them on to other servers
+ */
+public interface TicketEventListener {
+    /**
+     * @param ticket created ticket
+     */
+    void onTicketCreated(Ticket ticket);
+
+    /**
+     * @param ticket  commented ticket
+     * @param comment new comment
+     */
+    void onTicketComment(Ticket ticket, TicketComment comment);
+
+    /**
+     * @param ticket ticket with new status
+     * @param actor  UUID of player who changed the status, may be null
+     */
+    void onTicketStatusChange(Ticket ticket, UUID actor);
+
+    /**
+     * Status change of multiple tickets at once, players get one summary instead of one notification per ticket
+     *
+     * @param tickets tickets with new status
+     * @param open    new status, true = open, false = closed
+     * @param actor   UUID of player who changed the status, may be null
+     */
+    void onTicketsStatusChange(List<Ticket> tickets, boolean open, UUID actor);
+}
@@ -0,0 +1,106 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated executor for blocking GitHub I/O, so it doesn't occupy the shared Bukkit async pool.
+ * <br>
+ * Runs tasks on virtual threads if the runtime supports them, otherwise on a fixed pool of daemon threads.
+ * Either way at most 'maxConcurrency' tasks run at the same time, further tasks wait in order.
+ */
+public class TicketExecutor implements Executor {
+    private final int maxConcurrency;
+    private final ExecutorService delegate;
+    // Limits concurrency of virtual threads, null for the fixed pool which is bounded by itself
+    private final Semaphore permits;
+
+    /**
+     * @param maxConcurrency max number of tasks running at the same time
+     */
+    public TicketExecutor(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            delegate = virtual;
+            permits = new Semaphore(this.maxConcurrency, true);
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(this.maxConcurrency, this.maxConcurrency,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "GitHubTickets-IO-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            delegate = pool;
+            permits = null;
+        }
+    }
+
+    /**
+     * Create thread-per-task executor with virtual threads (Java 21+)
+     *
+     * @return executor or null if virtual threads are not supported by the runtime
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "GitHubTickets-IO-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if tasks run on virtual threads
+     */
+    public boolean isVirtual() {
+        return permits != null;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (permits == null) {
+            delegate.execute(task);
+            return;
+        }
+        // Parking a virtual thread is cheap, it waits for a permit instead of holding a queue slot
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Stop accepting tasks and wait for running tasks to finish
+     *
+     * @param timeoutMillis max time to wait
+     */
+    public void shutdown(long timeoutMillis) {
+        delegate.shutdown();
+        try {
+            delegate.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
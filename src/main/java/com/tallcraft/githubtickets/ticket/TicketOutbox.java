@@ -0,0 +1,473 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent, append-only journal of ticket writes which are replayed to GitHub in order by a background worker.
+ * <br>
+ * Writes are acknowledged once journaled. New tickets get a provisional (negative) id
+ * which is mapped to the real issue number once the ticket has been created on GitHub.
+ * Replay is at-least-once: a crash between a GitHub write and its journal acknowledgement repeats the write.
+ */
+class TicketOutbox {
+    private static final Logger logger = Logger.getLogger(TicketOutbox.class.getName());
+
+    private static final byte typeCreate = 1;
+    private static final byte typeComment = 2;
+    private static final byte typeStatus = 3;
+    private static final byte typeDone = 4;
+    private static final byte typeMap = 5;
+
+    // Mappings kept when compacting the journal
+    private static final int maxMappings = 1000;
+    private static final long minRetryDelay = 5;
+    private static final long maxRetryDelay = 300;
+
+    private final File journalFile;
+    private final Replayer replayer;
+
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    private final LinkedHashMap<Integer, Integer> provisionalIds = new LinkedHashMap<>();
+    private long nextSeq = 1;
+    private int nextProvisionalId = -1;
+
+    private DataOutputStream journal;
+    private FileOutputStream journalStream;
+    private ScheduledExecutorService worker;
+    private boolean replayScheduled = false;
+    private long retryDelay = minRetryDelay;
+
+    /**
+     * Performs journaled writes against GitHub
+     */
+    interface Replayer {
+        /**
+         * @return id of created ticket
+         */
+        int create(Ticket ticket, int provisionalId) throws IOException;
+
+        void comment(int id, TicketComment comment) throws IOException;
+
+        void changeStatus(int id, boolean open, UUID actor) throws IOException;
+
+        /**
+         * Called once all journaled writes are sent and acknowledged
+         */
+        default void onDrained() {
+        }
+    }
+
+    TicketOutbox(File journalFile, Replayer replayer) {
+        this.journalFile = journalFile;
+        this.replayer = replayer;
+    }
+
+    /**
+     * Load journal from disk and start replay worker
+     *
+     * @throws IOException if the journal can't be read or opened for writing
+     */
+    synchronized void start() throws IOException {
+        load();
+        // Rewrite to drop acknowledged entries and a possibly torn tail
+        compact();
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GitHubTickets-Outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleReplay(0);
+    }
+
+    /**
+     * Stop replay worker, unsent entries stay in the journal for the next start
+     */
+    synchronized void stop() {
+        if (worker != null) {
+            worker.shutdown();
+            worker = null;
+        }
+        closeJournal();
+    }
+
+    /**
+     * Journal creation of a ticket
+     *
+     * @param ticket Ticket to create
+     * @return provisional ticket id
+     * @throws IOException if the write can't be journaled
+     */
+    synchronized int create(Ticket ticket) throws IOException {
+        int provisionalId = nextProvisionalId--;
+        append(new Entry(nextSeq++, typeCreate, provisionalId, ticket, null, false, null));
+        return provisionalId;
+    }
+
+    /**
+     * Journal comment on a ticket
+     *
+     * @param id      Ticket ID
+     * @param comment Comment to add
+     * @throws IOException if the write can't be journaled
+     */
+    synchronized void comment(int id, TicketComment comment) throws IOException {
+        append(new Entry(nextSeq++, typeComment, id, null, comment, false, null));
+    }
+
+    /**
+     * Journal status change of a ticket
+     *
+     * @param id    Ticket ID
+     * @param open  true = open, false = closed
+     * @param actor UUID of player who changed the status, may be null
+     * @throws IOException if the write can't be journaled
+     */
+    synchronized void changeStatus(int id, boolean open, UUID actor) throws IOException {
+        append(new Entry(nextSeq++, typeStatus, id, null, null, open, actor));
+    }
+
+    /**
+     * Resolve provisional ticket id
+     *
+     * @param id Ticket ID, possibly provisional
+     * @return real ticket id, the id itself if it is not provisional, or null if the ticket is not created yet
+     */
+    synchronized Integer resolve(int id) {
+        if (!Ticket.isProvisionalId(id)) {
+            return id;
+        }
+        return provisionalIds.get(id);
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void append(Entry entry) throws IOException {
+        if (journal == null) {
+            throw new IOException("Outbox not started");
+        }
+        try {
+            writeRecord(journal, entry);
+            flush();
+        } catch (IOException ex) {
+            // Rewrite journal from memory so a partially written record doesn't hide later ones
+            compact();
+            throw ex;
+        }
+        pending.addLast(entry);
+        scheduleReplay(0);
+    }
+
+    private void flush() throws IOException {
+        journal.flush();
+        journalStream.getChannel().force(false);
+    }
+
+    private void scheduleReplay(long delaySeconds) {
+        if (worker == null || replayScheduled || pending.isEmpty()) {
+            return;
+        }
+        replayScheduled = true;
+        worker.schedule(this::replayPending, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replay pending entries in order, stop at the first failure and retry later
+     */
+    private void replayPending() {
+        synchronized (this) {
+            replayScheduled = false;
+        }
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = pending.peekFirst();
+                if (entry == null || worker == null) {
+                    return;
+                }
+            }
+            Integer mappedId = null;
+            try {
+                mappedId = replay(entry);
+            } catch (FileNotFoundException ex) {
+                // Ticket doesn't exist (anymore), retrying won't help
+                logger.warning("Dropping outbox entry for missing ticket " + entry.ticketId);
+            } catch (IOException | RuntimeException ex) {
+                synchronized (this) {
+                    logger.log(Level.WARNING, "Ticket write failed, retrying in " + retryDelay + "s", ex);
+                    long delay = retryDelay;
+                    retryDelay = Math.min(retryDelay * 2, maxRetryDelay);
+                    scheduleReplay(delay);
+                }
+                return;
+            }
+            synchronized (this) {
+                retryDelay = minRetryDelay;
+                pending.pollFirst();
+                if (journal == null) {
+                    // Stopped while replaying, entry is replayed again on next start
+                    return;
+                }
+                try {
+                    if (mappedId != null) {
+                        provisionalIds.put(entry.ticketId, mappedId);
+                        writeMapping(journal, entry.ticketId, mappedId);
+                    }
+                    journal.writeByte(typeDone);
+                    journal.writeLong(entry.seq);
+                    flush();
+                    if (pending.isEmpty()) {
+                        compact();
+                        replayer.onDrained();
+                    }
+                } catch (IOException ex) {
+                    logger.log(Level.SEVERE, "Could not write ticket outbox journal", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay single entry
+     *
+     * @return real ticket id for create entries, null otherwise
+     */
+    private Integer replay(Entry entry) throws IOException {
+        switch (entry.type) {
+            case typeCreate:
+                return replayer.create(entry.ticket, entry.ticketId);
+            case typeComment:
+            case typeStatus:
+                Integer id = resolve(entry.ticketId);
+                if (id == null) {
+                    throw new FileNotFoundException("Unknown provisional ticket " + entry.ticketId);
+                }
+                if (entry.type == typeComment) {
+                    replayer.comment(id, entry.comment);
+                } else {
+                    replayer.changeStatus(id, entry.open, entry.actor);
+                }
+                return null;
+            default:
+                throw new IllegalStateException("Unknown outbox entry type " + entry.type);
+        }
+    }
+
+    /**
+     * Read journal, collecting entries which were not acknowledged yet
+     */
+    private void load() throws IOException {
+        pending.clear();
+        File file = journalFile;
+        if (!file.exists()) {
+            // Crashed while replacing the journal on a file system without atomic moves, the copy is complete
+            file = getTmpFile();
+            if (!file.exists()) {
+                return;
+            }
+            logger.warning("Recovering ticket outbox journal from " + file);
+        }
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException ex) {
+                    break;
+                }
+                if (type == typeDone) {
+                    entries.remove(in.readLong());
+                } else if (type == typeMap) {
+                    provisionalIds.put(in.readInt(), in.readInt());
+                } else {
+                    Entry entry = readRecord(in, type);
+                    if (entry == null) {
+                        logger.warning("Ignoring torn or corrupt tail of ticket outbox journal");
+                        break;
+                    }
+                    entries.put(entry.seq, entry);
+                }
+            }
+        } catch (EOFException ex) {
+            logger.warning("Ignoring torn tail of ticket outbox journal");
+        }
+        pending.addAll(entries.values());
+        for (Entry entry : pending) {
+            nextSeq = Math.max(nextSeq, entry.seq + 1);
+            nextProvisionalId = Math.min(nextProvisionalId, entry.ticketId - 1);
+        }
+        for (int provisionalId : provisionalIds.keySet()) {
+            nextProvisionalId = Math.min(nextProvisionalId, provisionalId - 1);
+        }
+    }
+
+    /**
+     * Rewrite journal with pending entries and recent id mappings only
+     */
+    private void compact() throws IOException {
+        closeJournal();
+        while (provisionalIds.size() > maxMappings) {
+            provisionalIds.remove(provisionalIds.keySet().iterator().next());
+        }
+
+        File tmpFile = getTmpFile();
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            for (Map.Entry<Integer, Integer> mapping : provisionalIds.entrySet()) {
+                writeMapping(out, mapping.getKey(), mapping.getValue());
+            }
+            for (Entry entry : pending) {
+                writeRecord(out, entry);
+            }
+            out.flush();
+            fileOut.getChannel().force(true);
+        }
+        // A crash leaves either the previous or the compacted journal, both hold every pending entry
+        Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        journalStream = new FileOutputStream(journalFile, true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalStream));
+    }
+
+    private File getTmpFile() {
+        return new File(journalFile.getPath() + ".tmp");
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        journal = null;
+        journalStream = null;
+    }
+
+    private static void writeMapping(DataOutputStream out, int provisionalId, int id) throws IOException {
+        out.writeByte(typeMap);
+        out.writeInt(provisionalId);
+        out.writeInt(id);
+    }
+
+    /**
+     * Write entry as type byte, payload length, payload and CRC32 of the payload
+     */
+    private static void writeRecord(DataOutputStream out, Entry entry) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(buffer);
+        payload.writeLong(entry.seq);
+        payload.writeInt(entry.ticketId);
+        switch (entry.type) {
+            case typeCreate:
+                Ticket ticket = entry.ticket;
+                payload.writeLong(ticket.getTimestamp().getTime());
+                TicketCodec.writeUUID(payload, ticket.getPlayerUUID());
+                payload.writeUTF(ticket.getPlayerName());
+                payload.writeUTF(ticket.getServerName());
+                payload.writeUTF(ticket.getWorldName());
+                payload.writeDouble(ticket.getLocation().getX());
+                payload.writeDouble(ticket.getLocation().getY());
+                payload.writeDouble(ticket.getLocation().getZ());
+                TicketCodec.writeString(payload, ticket.getBody());
+                break;
+            case typeComment:
+                TicketComment comment = entry.comment;
+                TicketCodec.writeUUID(payload, comment.getPlayerUUID());
+                payload.writeUTF(comment.getDisplayName());
+                TicketCodec.writeString(payload, comment.getBody());
+                break;
+            case typeStatus:
+                payload.writeBoolean(entry.open);
+                TicketCodec.writeUUID(payload, entry.actor);
+                break;
+        }
+        byte[] bytes = buffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        out.writeByte(entry.type);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(crc.getValue());
+    }
+
+    /**
+     * Read entry written by {@link #writeRecord(DataOutputStream, Entry)}
+     *
+     * @return entry or null if the record is corrupt
+     */
+    private static Entry readRecord(DataInputStream in, byte type) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1024 * 1024) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if (crc.getValue() != in.readLong()) {
+            return null;
+        }
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        long seq = payload.readLong();
+        int ticketId = payload.readInt();
+        switch (type) {
+            case typeCreate:
+                Date timestamp = new Date(payload.readLong());
+                UUID playerUUID = TicketCodec.readUUID(payload);
+                String playerName = payload.readUTF();
+                String serverName = payload.readUTF();
+                String worldName = payload.readUTF();
+                Location location = new Location(payload.readDouble(), payload.readDouble(), payload.readDouble());
+                String body = TicketCodec.readString(payload);
+                Ticket ticket = new Ticket(timestamp, playerUUID, playerName, serverName, worldName, location, body);
+                return new Entry(seq, type, ticketId, ticket, null, false, null);
+            case typeComment:
+                UUID commentUUID = TicketCodec.readUUID(payload);
+                String displayName = payload.readUTF();
+                TicketComment comment = new TicketComment(null, commentUUID, displayName, TicketCodec.readString(payload));
+                return new Entry(seq, type, ticketId, null, comment, false, null);
+            case typeStatus:
+                boolean open = payload.readBoolean();
+                return new Entry(seq, type, ticketId, null, null, open, TicketCodec.readUUID(payload));
+            default:
+                return null;
+        }
+    }
+
+    private static class Entry {
+        private final long seq;
+        private final byte type;
+        private final int ticketId;
+        private final Ticket ticket;
+        private final TicketComment comment;
+        private final boolean open;
+        private final UUID actor;
+
+        private Entry(long seq, byte type, int ticketId, Ticket ticket, TicketComment comment, boolean open, UUID actor) {
+            this.seq = seq;
+            this.type = type;
+            this.ticketId = ticketId;
+            this.ticket = ticket;
+            this.comment = comment;
+            this.open = open;
+            this.actor = actor;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.util.List;
+
+/**
+ * One page of a ticket listing
+ */
+public class TicketPage {
+    private final List<Ticket> tickets;
+    private final int page;
+    private final boolean hasNext;
+
+    /**
+     * Construct ticket page
+     *
+     * @param tickets Tickets on this page
+     * @param page    Page number, starting at 1
+     * @param hasNext true if there is a page after this one
+     */
+    public TicketPage(List<Ticket> tickets, int page, boolean hasNext) {
+        this.tickets = tickets;
+        this.page = page;
+        this.hasNext = hasNext;
+    }
+
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean hasPrevious() {
+        return page > 1;
+    }
+
+    public boolean isEmpty() {
+        return tickets.isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+package com.tallcraft.githubtickets.ticket;
+
+/**
+ * Part of a ticket to fetch. Commands only fetch what they show or check, so e.g. a permission check
+ * doesn't pull every comment of a ticket from GitHub.
+ */
+public final class TicketProjection {
+    /**
+     * Ticket fields without comments
+     */
+    public static final TicketProjection HEADER = new TicketProjection(0);
+    /**
+     * Ticket with all comments
+     */
+    public static final TicketProjection FULL = new TicketProjection(-1);
+
+    private final int commentLimit;
+
+    private TicketProjection(int commentLimit) {
+        this.commentLimit = commentLimit;
+    }
+
+    /**
+     * Ticket with its latest comments
+     *
+     * @param count max number of comments
+     * @return projection
+     */
+    public static TicketProjection latest(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        return new TicketProjection(count);
+    }
+
+    /**
+     * @return max number of comments, 0 for none and -1 for all
+     */
+    public int getCommentLimit() {
+        return commentLimit;
+    }
+
+    public boolean includesComments() {
+        return commentLimit != 0;
+    }
+
+    public boolean isFull() {
+        return commentLimit < 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TicketProjection && ((TicketProjection) o).commentLimit == commentLimit;
+    }
+
+    @Override
+    public int hashCode() {
+        return commentLimit;
+    }
+
+    @Override
+    public String toString() {
+        return commentLimit == 0 ? "HEADER" : commentLimit < 0 ? "FULL" : "LATEST(" + commentLimit + ")";
+    }
+}
@@ -0,0 +1,204 @@
+package com.tallcraft.githubtickets.ticket;
+
+import com.tallcraft.githubtickets.Metrics;
+import net.md_5.bungee.api.chat.BaseComponent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache of rendered chat messages of tickets, keyed by ticket id.
+ * <br>
+ * Each entry is tagged with the ticket version (update time, open state and comment count) it was rendered from.
+ * A ticket is only rendered again once its version changed.
+ * Rendering happens on the calling thread, callers render before hopping to the main thread.
+ * Cached messages are shared and must not be modified.
+ */
+public class TicketRenderCache {
+    private static final int maxEntries = 512;
+    private static TicketRenderCache ourInstance = new TicketRenderCache();
+    private static final Metrics metrics = Metrics.getInstance();
+
+    // Least recently used entries are evicted first
+    private final Map<Integer, RenderEntry> entries = new LinkedHashMap<Integer, RenderEntry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RenderEntry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public static TicketRenderCache getInstance() {
+        return ourInstance;
+    }
+
+    /**
+     * Get chat message of ticket including comments, see {@link Ticket#toChat()}
+     *
+     * @param ticket Ticket to render
+     * @return cached or freshly rendered message
+     */
+    public BaseComponent[] toChat(Ticket ticket) {
+        RenderEntry entry = getEntry(ticket);
+        BaseComponent[] chat = entry.chat;
+        metrics.recordHit("renderCache", chat != null);
+        if (chat == null) {
+            chat = ticket.toChat();
+            entry.chat = chat;
+        }
+        return chat;
+    }
+
+    /**
+     * Get chat message of a comment window, see {@link CommentWindow#toChat(String)}.
+     * Only the latest window is cached, older comments are paged through rarely.
+     *
+     * @param window       Comment window to render
+     * @param olderCommand command prefix of the older comments link, must be the same for every call per ticket
+     * @return cached or freshly rendered message
+     */
+    public BaseComponent[] toChat(CommentWindow window, String olderCommand) {
+        if (!window.isLatest()) {
+            return window.toChat(olderCommand);
+        }
+        RenderEntry entry = getEntry(window.getTicket());
+        WindowChat windowChat = entry.windowChat;
+        boolean hit = windowChat != null && windowChat.matches(window);
+        metrics.recordHit("renderCache", hit);
+        if (!hit) {
+            windowChat = new WindowChat(window, window.toChat(olderCommand));
+            entry.windowChat = windowChat;
+        }
+        return windowChat.chat;
+    }
+
+    /**
+     * Get chat message of a ticket list, see {@link Ticket#ticketListToChat(List)}
+     *
+     * @param tickets Tickets to list
+     * @return message built from cached or freshly rendered list entries
+     */
+    public BaseComponent[] ticketListToChat(List<Ticket> tickets) {
+        BaseComponent[][] lines = new BaseComponent[tickets.size()][];
+        int length = 0;
+        for (int i = 0; i < lines.length; i++) {
+            Ticket ticket = tickets.get(i);
+            RenderEntry entry = getEntry(ticket);
+            BaseComponent[] listEntry = entry.listEntry;
+            metrics.recordHit("renderCache", listEntry != null);
+            if (listEntry == null) {
+                listEntry = ticket.toListEntryChat();
+                entry.listEntry = listEntry;
+            }
+            lines[i] = listEntry;
+            length += listEntry.length;
+        }
+
+        BaseComponent[] result = new BaseComponent[length];
+        int offset = 0;
+        for (BaseComponent[] line : lines) {
+            System.arraycopy(line, 0, result, offset, line.length);
+            offset += line.length;
+        }
+        return result;
+    }
+
+    /**
+     * Drop rendered messages of a ticket if they don't match its new version
+     *
+     * @param ticket changed ticket
+     */
+    synchronized void invalidate(Ticket ticket) {
+        RenderEntry entry = entries.get(ticket.getId());
+        if (entry != null && !entry.matches(ticket)) {
+            entries.put(ticket.getId(), new RenderEntry(ticket, entry));
+        }
+    }
+
+    /**
+     * Drop rendered messages of a ticket
+     *
+     * @param id Ticket ID
+     */
+    synchronized void invalidate(int id) {
+        entries.remove(id);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get entry matching the ticket version, replacing an outdated one
+     */
+    private synchronized RenderEntry getEntry(Ticket ticket) {
+        RenderEntry entry = entries.get(ticket.getId());
+        if (entry == null || !entry.matches(ticket)) {
+            entry = new RenderEntry(ticket, entry);
+            entries.put(ticket.getId(), entry);
+        }
+        return entry;
+    }
+
+    private static class RenderEntry {
+        // Version
+        private final long updatedAt;
+        private final boolean open;
+        private final int commentCount;
+
+        // Rendered messages, rendered on first use
+        private volatile BaseComponent[] chat;
+        private volatile BaseComponent[] listEntry;
+        private volatile WindowChat windowChat;
+
+        /**
+         * @param ticket   Ticket in its current version
+         * @param previous outdated entry, may be null
+         */
+        private RenderEntry(Ticket ticket, RenderEntry previous) {
+            this.updatedAt = getUpdatedAt(ticket);
+            this.open = ticket.isOpen();
+            this.commentCount = getCommentCount(ticket);
+            // List entries don't show state or comments, they stay valid until the ticket is updated
+            if (previous != null && previous.updatedAt == updatedAt) {
+                this.listEntry = previous.listEntry;
+            }
+        }
+
+        private boolean matches(Ticket ticket) {
+            return updatedAt == getUpdatedAt(ticket) && open == ticket.isOpen()
+                    && commentCount == getCommentCount(ticket);
+        }
+
+        private static long getUpdatedAt(Ticket ticket) {
+            return ticket.getUpdatedAt() == null ? 0 : ticket.getUpdatedAt().getTime();
+        }
+
+        private static int getCommentCount(Ticket ticket) {
+            return ticket.getComments() == null ? -1 : ticket.getComments().size();
+        }
+    }
+
+    /**
+     * Rendered latest comment window, tagged with its comment count since window tickets carry no comments
+     */
+    private static class WindowChat {
+        private final int totalCount;
+        private final int size;
+        private final String olderCursor;
+        private final BaseComponent[] chat;
+
+        private WindowChat(CommentWindow window, BaseComponent[] chat) {
+            this.totalCount = window.getTotalCount();
+            this.size = window.getComments().size();
+            this.olderCursor = window.getOlderCursor();
+            this.chat = chat;
+        }
+
+        private boolean matches(CommentWindow window) {
+            return totalCount == window.getTotalCount() && size == window.getComments().size()
+                    && Objects.equals(olderCursor, window.getOlderCursor());
+        }
+    }
+}
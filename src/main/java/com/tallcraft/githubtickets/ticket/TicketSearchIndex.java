@@ -0,0 +1,176 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over ticket bodies and comment bodies for local full-text search, maintained by {@link TicketCache}.
+ * <br>
+ * Text is split into lowercase terms of letters and digits. Comments of a ticket are often not loaded,
+ * so comment terms are kept when a ticket is indexed again without comments, until its comments are loaded again.
+ * Not thread-safe, guarded by the store lock.
+ */
+class TicketSearchIndex {
+    private static final Pattern separator = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Shorter terms match too many tickets to narrow a search down
+    private static final int minTermLength = 2;
+
+    // Term => ticket ids, sorted to look up terms by prefix
+    private final NavigableMap<String, Set<Integer>> postings = new TreeMap<>();
+    // Ticket id => indexed terms, to update postings on change
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    /**
+     * Split text into search terms
+     *
+     * @param text  text to split, may be null
+     * @param terms set to add the terms to
+     */
+    static void tokenize(String text, Collection<String> terms) {
+        if (text == null) {
+            return;
+        }
+        for (String term : separator.split(text.toLowerCase(Locale.ROOT))) {
+            if (term.length() >= minTermLength) {
+                terms.add(term);
+            }
+        }
+    }
+
+    /**
+     * Index ticket or replace its indexed terms. If its comments are not loaded the previous comment terms are kept.
+     *
+     * @param ticket Ticket to index
+     */
+    void index(Ticket ticket) {
+        Document previous = documents.get(ticket.getId());
+        Set<String> commentTerms;
+        if (ticket.getComments() != null) {
+            commentTerms = new HashSet<>();
+            ticket.getComments().forEach(comment -> tokenize(comment.getBody(), commentTerms));
+        } else {
+            commentTerms = previous == null ? new HashSet<>() : previous.commentTerms;
+        }
+        Set<String> bodyTerms = new HashSet<>();
+        tokenize(ticket.getBody(), bodyTerms);
+        replace(ticket.getId(), new Document(bodyTerms, commentTerms));
+    }
+
+    /**
+     * Add terms of a new comment to an indexed ticket
+     *
+     * @param id      Ticket ID
+     * @param comment new comment
+     */
+    void addComment(int id, TicketComment comment) {
+        Set<String> terms = new HashSet<>();
+        tokenize(comment.getBody(), terms);
+        addCommentTerms(id, terms);
+    }
+
+    /**
+     * Add comment terms to an indexed ticket, ignored if the ticket is not indexed
+     *
+     * @param id    Ticket ID
+     * @param terms comment terms
+     */
+    void addCommentTerms(int id, Collection<String> terms) {
+        Document document = documents.get(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : terms) {
+            if (document.commentTerms.add(term) && !document.bodyTerms.contains(term)) {
+                postings.computeIfAbsent(term, key -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    /**
+     * @param id Ticket ID
+     * @return comment terms of the ticket, empty if not indexed
+     */
+    Set<String> getCommentTerms(int id) {
+        Document document = documents.get(id);
+        return document == null ? Collections.emptySet() : Collections.unmodifiableSet(document.commentTerms);
+    }
+
+    void remove(int id) {
+        replace(id, null);
+    }
+
+    void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    /**
+     * Find tickets containing every term of the query, each term matches words starting with it
+     *
+     * @param query search query
+     * @return ids of matching tickets in no particular order, empty if the query has no terms
+     */
+    Set<Integer> search(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(query, terms);
+        Set<Integer> result = null;
+        for (String term : terms) {
+            Set<Integer> matches = new HashSet<>();
+            // Every term in [term, term + max char) starts with term
+            postings.subMap(term, true, term + Character.MAX_VALUE, false).values().forEach(matches::addAll);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? Collections.emptySet() : result;
+    }
+
+    /**
+     * Replace document of a ticket, updating only postings of changed terms
+     *
+     * @param id       Ticket ID
+     * @param document new document, null to remove the ticket
+     */
+    private void replace(int id, Document document) {
+        Document previous = document == null ? documents.remove(id) : documents.put(id, document);
+        Set<String> oldTerms = previous == null ? Collections.emptySet() : previous.terms();
+        Set<String> newTerms = document == null ? Collections.emptySet() : document.terms();
+        for (String term : oldTerms) {
+            if (!newTerms.contains(term)) {
+                Set<Integer> ids = postings.get(term);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+        for (String term : newTerms) {
+            if (!oldTerms.contains(term)) {
+                postings.computeIfAbsent(term, key -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    private static class Document {
+        private final Set<String> bodyTerms;
+        private final Set<String> commentTerms;
+
+        private Document(Set<String> bodyTerms, Set<String> commentTerms) {
+            this.bodyTerms = bodyTerms;
+            this.commentTerms = commentTerms;
+        }
+
+        private Set<String> terms() {
+            Set<String> terms = new HashSet<>(bodyTerms);
+            terms.addAll(commentTerms);
+            return terms;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.tallcraft.githubtickets.ticket;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * On-disk copy of the local ticket store, so the plugin starts warm and only needs a delta sync.
+ * <br>
+ * Layout: magic, version, sync state, ticket count, then load time and ticket (with comments, if cached)
+ * for every ticket, then search terms of comments which are not cached, followed by a CRC32 of everything before it.
+ * Version 1 snapshots have no comment terms.
+ * Server and world names repeat across tickets and are written once, later occurrences refer to them by index.
+ */
+class TicketSnapshot {
+    private static final int magic = 0x47485453; // GHTS
+    private static final byte version = 2;
+    // Upper bounds for the ticket and term count, guard against reading corrupt data
+    private static final int maxTickets = 1000000;
+    private static final int maxTerms = 100000;
+
+    // Tickets with the time they were loaded from GitHub
+    final Map<Ticket, Long> tickets;
+    // Search terms of comments by ticket id, for tickets whose comments are not cached
+    final Map<Integer, Set<String>> commentTerms;
+    // Sync state of the store, see TicketCache
+    final long syncedAt;
+    final long openCompleteAt;
+    final long closedCompleteAt;
+    // High-water mark of the sync, null if there was no sync yet
+    final Date highWaterMark;
+
+    TicketSnapshot(Map<Ticket, Long> tickets, Map<Integer, Set<String>> commentTerms, long syncedAt,
+                   long openCompleteAt, long closedCompleteAt, Date highWaterMark) {
+        this.tickets = tickets;
+        this.commentTerms = commentTerms;
+        this.syncedAt = syncedAt;
+        this.openCompleteAt = openCompleteAt;
+        this.closedCompleteAt = closedCompleteAt;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Write snapshot, replacing the file atomically only once it is written completely and on disk
+     *
+     * @param file file to write to
+     * @throws IOException on write error
+     */
+    void write(File file) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                     new BufferedOutputStream(fileOut), crc))) {
+            out.writeInt(magic);
+            out.writeByte(version);
+            out.writeLong(syncedAt);
+            out.writeLong(openCompleteAt);
+            out.writeLong(closedCompleteAt);
+            TicketCodec.writeDate(out, highWaterMark);
+
+            NameTableCodec codec = new NameTableCodec();
+            out.writeInt(tickets.size());
+            for (Map.Entry<Ticket, Long> entry : tickets.entrySet()) {
+                out.writeLong(entry.getValue());
+                codec.writeTicket(out, entry.getKey(), true);
+            }
+
+            out.writeInt(commentTerms.size());
+            for (Map.Entry<Integer, Set<String>> entry : commentTerms.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String term : entry.getValue()) {
+                    TicketCodec.writeString(out, term);
+                }
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        // A crash leaves either the previous or the new snapshot, never none
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Read snapshot written by {@link #write(File)}
+     *
+     * @param file file to read from
+     * @return snapshot or null if the file doesn't exist
+     * @throws IOException on read error, corrupt data or a snapshot of another version
+     */
+    static TicketSnapshot read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        try (InputStream fileIn = new BufferedInputStream(new FileInputStream(file))) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(fileIn, crc));
+            if (in.readInt() != magic) {
+                throw new IOException("Not a ticket snapshot");
+            }
+            byte fileVersion = in.readByte();
+            if (fileVersion != version && fileVersion != 1) {
+                throw new IOException("Unsupported ticket snapshot version " + fileVersion);
+            }
+            long syncedAt = in.readLong();
+            long openCompleteAt = in.readLong();
+            long closedCompleteAt = in.readLong();
+            Date highWaterMark = TicketCodec.readDate(in);
+
+            NameTableCodec codec = new NameTableCodec();
+            int count = in.readInt();
+            if (count < 0 || count > maxTickets) {
+                throw new IOException("Invalid ticket count " + count);
+            }
+            Map<Ticket, Long> tickets = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                long loadedAt = in.readLong();
+                tickets.put(codec.readTicket(in), loadedAt);
+            }
+
+            Map<Integer, Set<String>> commentTerms = new HashMap<>();
+            int termTickets = fileVersion == 1 ? 0 : in.readInt();
+            if (termTickets < 0 || termTickets > count) {
+                throw new IOException("Invalid comment term ticket count " + termTickets);
+            }
+            for (int i = 0; i < termTickets; i++) {
+                int id = in.readInt();
+                int termCount = in.readInt();
+                if (termCount < 0 || termCount > maxTerms) {
+                    throw new IOException("Invalid term count " + termCount);
+                }
+                Set<String> terms = new HashSet<>();
+                for (int j = 0; j < termCount; j++) {
+                    terms.add(TicketCodec.readString(in));
+                }
+                commentTerms.put(id, terms);
+            }
+
+            long checksum = crc.getValue();
+            if (new DataInputStream(fileIn).readLong() != checksum) {
+                throw new IOException("Ticket snapshot checksum mismatch");
+            }
+            return new TicketSnapshot(tickets, commentTerms, syncedAt, openCompleteAt, closedCompleteAt,
+                    highWaterMark);
+        }
+    }
+
+    /**
+     * Codec which writes each server and world name once and refers to it by index afterwards
+     */
+    private static class NameTableCodec extends TicketCodec {
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        @Override
+        protected void writeName(DataOutput out, String name) throws IOException {
+            if (name == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer id = nameIds.get(name);
+            if (id != null) {
+                out.writeInt(id);
+                return;
+            }
+            // Index of a new name is the table size, followed by the name itself
+            out.writeInt(names.size());
+            writeString(out, name);
+            nameIds.put(name, names.size());
+            names.add(name);
+        }
+
+        @Override
+        protected String readName(DataInput in) throws IOException {
+            int id = in.readInt();
+            if (id == -1) {
+                return null;
+            }
+            if (id >= 0 && id < names.size()) {
+                return names.get(id);
+            }
+            if (id != names.size()) {
+                throw new IOException("Invalid name reference " + id);
+            }
+            String name = readString(in);
+            names.add(name);
+            return name;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.tallcraft.githubtickets.ticket;
+
+import com.tallcraft.githubtickets.github.GitHubController;
+import com.tallcraft.githubtickets.github.RequestScheduler;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background task which keeps the local ticket store in sync with GitHub.
+ * Keeps a high-water mark of issue update times and only fetches issues changed since.
+ */
+public class TicketSync extends BukkitRunnable {
+    private static final GitHubController githubController = GitHubController.getInstance();
+
+    private final TicketController ticketController;
+
+    // Guard against overlapping runs if a sync takes longer than the interval
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // Update time of the most recently updated issue seen, null before the first sync
+    private volatile Date highWaterMark;
+
+    TicketSync(TicketController ticketController) {
+        this.ticketController = ticketController;
+    }
+
+    @Override
+    public void run() {
+        if (!githubController.isConnected() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sync();
+        } catch (RequestScheduler.RequestDeferredException e) {
+            // Request quota is reserved for player commands, the next run catches up
+        } catch (IOException e) {
+            // Keep high-water mark, the next run catches up
+            e.printStackTrace();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Fetch issues changed since the high-water mark and merge them into the local ticket store.
+     * The first sync fetches all issues.
+     *
+     * @throws IOException API error
+     */
+    private void sync() throws IOException {
+        long startedAt = System.currentTimeMillis();
+        Date since = highWaterMark;
+
+        List<Ticket> tickets = githubController.getTicketsUpdatedSince(since);
+        ticketController.mergeSynced(tickets, since == null, startedAt);
+
+        Date newMark = since;
+        for (Ticket ticket : tickets) {
+            Date updatedAt = ticket.getUpdatedAt();
+            if (updatedAt != null && (newMark == null || updatedAt.after(newMark))) {
+                newMark = updatedAt;
+            }
+        }
+        highWaterMark = newMark;
+    }
+
+    public Date getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Continue from a high-water mark restored from disk, the next run only fetches issues changed since
+     *
+     * @param highWaterMark restored mark, null to fetch all issues
+     */
+    void setHighWaterMark(Date highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+}
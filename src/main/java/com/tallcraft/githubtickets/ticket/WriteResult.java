@@ -0,0 +1,48 @@
+package com.tallcraft.githubtickets.ticket;
+
+/**
+ * Outcome of a ticket write, which is either journaled or sent to GitHub directly
+ */
+public class WriteResult {
+    private static final WriteResult journaled = new WriteResult(true, null);
+
+    private final boolean isJournaled;
+    private final Ticket ticket;
+
+    private WriteResult(boolean isJournaled, Ticket ticket) {
+        this.isJournaled = isJournaled;
+        this.ticket = ticket;
+    }
+
+    static WriteResult journaled() {
+        return journaled;
+    }
+
+    /**
+     * @param ticket modified ticket, null if not found
+     */
+    static WriteResult written(Ticket ticket) {
+        return new WriteResult(false, ticket);
+    }
+
+    /**
+     * @return true if the write was journaled and is sent to GitHub in the background
+     */
+    public boolean isJournaled() {
+        return isJournaled;
+    }
+
+    /**
+     * @return true if the write was sent directly but the ticket no longer exists
+     */
+    public boolean isNotFound() {
+        return !isJournaled && ticket == null;
+    }
+
+    /**
+     * @return modified ticket if the write was sent directly, null if journaled or not found
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
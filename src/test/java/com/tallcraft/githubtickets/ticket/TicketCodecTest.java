@@ -0,0 +1,112 @@
+package com.tallcraft.githubtickets.ticket;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketCodecTest {
+
+    static Ticket newTicket(int id, String serverName, String worldName, String body) {
+        Ticket ticket = new Ticket(id, true, new Date(1600000000000L + id), UUID.randomUUID(), "Steve",
+                serverName, worldName, new Location(1.5, 64, -3), body);
+        ticket.setUpdatedAt(new Date(1600000100000L + id));
+        return ticket;
+    }
+
+    static TicketComment newComment(UUID playerUUID, String body) {
+        return new TicketComment(new Date(1600000200000L), playerUUID, "Alex", body);
+    }
+
+    static void assertTicketEquals(Ticket expected, Ticket actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.isOpen(), actual.isOpen());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.getPlayerUUID(), actual.getPlayerUUID());
+        assertEquals(expected.getPlayerName(), actual.getPlayerName());
+        assertEquals(expected.getServerName(), actual.getServerName());
+        assertEquals(expected.getWorldName(), actual.getWorldName());
+        assertEquals(expected.getLocation().getX(), actual.getLocation().getX());
+        assertEquals(expected.getLocation().getY(), actual.getLocation().getY());
+        assertEquals(expected.getLocation().getZ(), actual.getLocation().getZ());
+        assertEquals(expected.getBody(), actual.getBody());
+        if (expected.getComments() == null) {
+            assertNull(actual.getComments());
+            return;
+        }
+        assertNotNull(actual.getComments());
+        assertEquals(expected.getComments().size(), actual.getComments().size());
+        for (int i = 0; i < expected.getComments().size(); i++) {
+            assertCommentEquals(expected.getComments().get(i), actual.getComments().get(i));
+        }
+    }
+
+    static void assertCommentEquals(TicketComment expected, TicketComment actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getPlayerUUID(), actual.getPlayerUUID());
+        assertEquals(expected.getDisplayName(), actual.getDisplayName());
+        assertEquals(expected.getBody(), actual.getBody());
+    }
+
+    private static Ticket roundTrip(Ticket ticket, boolean includeComments) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new TicketCodec().writeTicket(new DataOutputStream(buffer), ticket, includeComments);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        Ticket read = new TicketCodec().readTicket(in);
+        assertEquals(-1, in.read(), "ticket not read completely");
+        return read;
+    }
+
+    @Test
+    void ticketWithComments() throws IOException {
+        Ticket ticket = newTicket(7, "survival", "world", "Lost my items\nat spawn \u00fc");
+        LinkedList<TicketComment> comments = new LinkedList<>();
+        comments.add(newComment(UUID.randomUUID(), "On my way"));
+        // Comments written on GitHub have no player
+        comments.add(newComment(null, "Done"));
+        ticket.setComments(comments);
+
+        assertTicketEquals(ticket, roundTrip(ticket, true));
+    }
+
+    @Test
+    void ticketWithoutComments() throws IOException {
+        Ticket ticket = newTicket(8, "survival", "world", "Griefing");
+        ticket.setComments(new LinkedList<>(List.of(newComment(null, "Checking"))));
+
+        Ticket read = roundTrip(ticket, false);
+        assertNull(read.getComments());
+        ticket.setComments(null);
+        assertTicketEquals(ticket, read);
+    }
+
+    @Test
+    void ticketWithEmptyCommentsAndNullUpdatedAt() throws IOException {
+        Ticket ticket = newTicket(9, "creative", "world_nether", "");
+        ticket.setUpdatedAt(null);
+        ticket.setOpen(false);
+        ticket.setComments(new LinkedList<>());
+
+        Ticket read = roundTrip(ticket, true);
+        assertTicketEquals(ticket, read);
+        assertTrue(read.getComments().isEmpty());
+    }
+
+    @Test
+    void truncatedTicketFails() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new TicketCodec().writeTicket(new DataOutputStream(buffer), newTicket(1, "s", "w", "body"), true);
+        byte[] bytes = buffer.toByteArray();
+        byte[] truncated = new byte[bytes.length - 5];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        assertThrows(IOException.class, () -> new TicketCodec().readTicket(
+                new DataInputStream(new ByteArrayInputStream(truncated))));
+    }
+}
@@ -0,0 +1,214 @@
+package com.tallcraft.githubtickets.ticket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketOutboxTest {
+    @TempDir
+    File dir;
+
+    /**
+     * Fails every write, so journaled entries stay pending
+     */
+    private static class FailingReplayer implements TicketOutbox.Replayer {
+        @Override
+        public int create(Ticket ticket, int provisionalId) throws IOException {
+            throw new IOException("offline");
+        }
+
+        @Override
+        public void comment(int id, TicketComment comment) throws IOException {
+            throw new IOException("offline");
+        }
+
+        @Override
+        public void changeStatus(int id, boolean open, UUID actor) throws IOException {
+            throw new IOException("offline");
+        }
+    }
+
+    /**
+     * Records replayed writes, created tickets get id 42
+     */
+    private static class RecordingReplayer implements TicketOutbox.Replayer {
+        private final List<Object[]> calls = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch drained = new CountDownLatch(1);
+
+        @Override
+        public int create(Ticket ticket, int provisionalId) {
+            calls.add(new Object[]{"create", ticket, provisionalId});
+            return 42;
+        }
+
+        @Override
+        public void comment(int id, TicketComment comment) {
+            calls.add(new Object[]{"comment", id, comment});
+        }
+
+        @Override
+        public void changeStatus(int id, boolean open, UUID actor) {
+            calls.add(new Object[]{"status", id, open, actor});
+        }
+
+        @Override
+        public void onDrained() {
+            drained.countDown();
+        }
+
+        /**
+         * Wait until every journaled write is replayed and acknowledged
+         */
+        private void awaitDrained() throws InterruptedException {
+            assertTrue(drained.await(10, TimeUnit.SECONDS), "writes not replayed");
+        }
+    }
+
+    private final Ticket ticket = new Ticket(new Date(1600000000000L), UUID.randomUUID(), "Steve", "survival",
+            "world", new Location(1.5, 64, -3), "Lost my items");
+    private final TicketComment comment = new TicketComment(null, null, "Alex", "On my way");
+    private final UUID actor = UUID.randomUUID();
+
+    /**
+     * Journal a create, a comment on it and two status changes without sending them
+     */
+    private File writeJournal() throws IOException {
+        File file = new File(dir, "outbox.journal");
+        TicketOutbox outbox = new TicketOutbox(file, new FailingReplayer());
+        outbox.start();
+        int provisionalId = outbox.create(ticket);
+        assertTrue(Ticket.isProvisionalId(provisionalId));
+        outbox.comment(provisionalId, comment);
+        outbox.changeStatus(7, false, actor);
+        outbox.changeStatus(8, true, null);
+        outbox.stop();
+        return file;
+    }
+
+    @Test
+    void replaysJournalAfterRestart() throws Exception {
+        File file = writeJournal();
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        TicketOutbox outbox = new TicketOutbox(file, replayer);
+        outbox.start();
+        replayer.awaitDrained();
+        outbox.stop();
+
+        List<Object[]> calls = replayer.calls;
+        assertEquals(4, calls.size());
+        assertEquals("create", calls.get(0)[0]);
+        Ticket created = (Ticket) calls.get(0)[1];
+        assertEquals(ticket.getTimestamp(), created.getTimestamp());
+        assertEquals(ticket.getPlayerUUID(), created.getPlayerUUID());
+        assertEquals(ticket.getPlayerName(), created.getPlayerName());
+        assertEquals(ticket.getServerName(), created.getServerName());
+        assertEquals(ticket.getWorldName(), created.getWorldName());
+        assertEquals(ticket.getLocation().getX(), created.getLocation().getX());
+        assertEquals(ticket.getLocation().getY(), created.getLocation().getY());
+        assertEquals(ticket.getLocation().getZ(), created.getLocation().getZ());
+        assertEquals(ticket.getBody(), created.getBody());
+
+        // Comment on the provisional ticket goes to the created issue
+        assertEquals("comment", calls.get(1)[0]);
+        assertEquals(42, calls.get(1)[1]);
+        TicketComment replayedComment = (TicketComment) calls.get(1)[2];
+        assertNull(replayedComment.getPlayerUUID());
+        assertEquals(comment.getDisplayName(), replayedComment.getDisplayName());
+        assertEquals(comment.getBody(), replayedComment.getBody());
+
+        assertArrayEquals(new Object[]{"status", 7, false, actor}, calls.get(2));
+        assertArrayEquals(new Object[]{"status", 8, true, null}, calls.get(3));
+    }
+
+    @Test
+    void acknowledgedEntriesAreNotReplayed() throws Exception {
+        File file = writeJournal();
+        RecordingReplayer first = new RecordingReplayer();
+        TicketOutbox outbox = new TicketOutbox(file, first);
+        outbox.start();
+        first.awaitDrained();
+        assertEquals(0, outbox.getPendingCount());
+        int provisionalId = (Integer) first.calls.get(0)[2];
+        assertEquals(42, outbox.resolve(provisionalId));
+        outbox.stop();
+
+        // Mapping of the provisional id survives the restart
+        RecordingReplayer second = new RecordingReplayer();
+        outbox = new TicketOutbox(file, second);
+        outbox.start();
+        assertEquals(0, outbox.getPendingCount());
+        assertEquals(42, outbox.resolve(provisionalId));
+        outbox.stop();
+        assertTrue(second.calls.isEmpty());
+    }
+
+    @Test
+    void tornTailIsDropped() throws Exception {
+        File file = writeJournal();
+        // Cut into the last record, as if the server crashed while appending it
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        TicketOutbox outbox = new TicketOutbox(file, replayer);
+        outbox.start();
+        replayer.awaitDrained();
+        outbox.stop();
+
+        assertEquals(3, replayer.calls.size());
+        assertArrayEquals(new Object[]{"status", 7, false, actor}, replayer.calls.get(2));
+    }
+
+    @Test
+    void recoversJournalFromCompactionCopy() throws Exception {
+        File file = writeJournal();
+        // Crash after the old journal was removed but before the compacted copy replaced it
+        File tmpFile = new File(file.getPath() + ".tmp");
+        assertTrue(file.renameTo(tmpFile));
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        TicketOutbox outbox = new TicketOutbox(file, replayer);
+        outbox.start();
+        assertEquals(4, outbox.getPendingCount());
+        replayer.awaitDrained();
+        outbox.stop();
+
+        assertEquals(4, replayer.calls.size());
+        assertEquals(42, replayer.calls.get(1)[1]);
+        assertTrue(file.exists());
+        assertFalse(tmpFile.exists());
+    }
+
+    @Test
+    void ignoresPartialCompactionCopy() throws Exception {
+        File file = writeJournal();
+        // Crash while writing the compacted copy, the journal itself is still complete
+        Files.write(new File(file.getPath() + ".tmp").toPath(), new byte[]{1, 0, 0});
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        TicketOutbox outbox = new TicketOutbox(file, replayer);
+        outbox.start();
+        assertEquals(4, outbox.getPendingCount());
+        replayer.awaitDrained();
+        outbox.stop();
+
+        assertEquals(4, replayer.calls.size());
+    }
+
+    @Test
+    void writesFailBeforeStart() {
+        TicketOutbox outbox = new TicketOutbox(new File(dir, "outbox.journal"), new FailingReplayer());
+        assertThrows(IOException.class, () -> outbox.comment(1, comment));
+    }
+}
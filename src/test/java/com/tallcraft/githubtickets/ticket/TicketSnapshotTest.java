@@ -0,0 +1,132 @@
+package com.tallcraft.githubtickets.ticket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static com.tallcraft.githubtickets.ticket.TicketCodecTest.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketSnapshotTest {
+    @TempDir
+    File dir;
+
+    private static TicketSnapshot newSnapshot(Map<Integer, Set<String>> commentTerms) {
+        Map<Ticket, Long> tickets = new LinkedHashMap<>();
+        // Repeated server and world names are written once
+        Ticket first = newTicket(1, "survival", "world", "First");
+        first.setComments(new LinkedList<>(List.of(newComment(UUID.randomUUID(), "Hi"), newComment(null, "Bye"))));
+        tickets.put(first, 1000L);
+        tickets.put(newTicket(2, "survival", "world", "Second"), 2000L);
+        tickets.put(newTicket(3, "creative", "world", "Third"), 3000L);
+        Ticket fourth = newTicket(4, "survival", "world_nether", "Fourth");
+        fourth.setUpdatedAt(null);
+        tickets.put(fourth, 4000L);
+        tickets.put(newTicket(5, "creative", "world_nether", "Fifth"), 5000L);
+        return new TicketSnapshot(tickets, commentTerms, 10L, 20L, 30L, new Date(40L));
+    }
+
+    private static void assertSnapshotEquals(TicketSnapshot expected, TicketSnapshot actual) {
+        assertEquals(expected.syncedAt, actual.syncedAt);
+        assertEquals(expected.openCompleteAt, actual.openCompleteAt);
+        assertEquals(expected.closedCompleteAt, actual.closedCompleteAt);
+        assertEquals(expected.highWaterMark, actual.highWaterMark);
+        assertEquals(expected.tickets.size(), actual.tickets.size());
+        Iterator<Map.Entry<Ticket, Long>> actualEntries = actual.tickets.entrySet().iterator();
+        for (Map.Entry<Ticket, Long> entry : expected.tickets.entrySet()) {
+            Map.Entry<Ticket, Long> actualEntry = actualEntries.next();
+            assertTicketEquals(entry.getKey(), actualEntry.getKey());
+            assertEquals(entry.getValue(), actualEntry.getValue());
+        }
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        File file = new File(dir, "tickets.snapshot");
+        Map<Integer, Set<String>> commentTerms = new HashMap<>();
+        commentTerms.put(2, new HashSet<>(List.of("teleported", "spawn")));
+        TicketSnapshot snapshot = newSnapshot(commentTerms);
+        snapshot.write(file);
+
+        TicketSnapshot read = TicketSnapshot.read(file);
+        assertSnapshotEquals(snapshot, read);
+        assertEquals(commentTerms, read.commentTerms);
+    }
+
+    @Test
+    void roundTripWithoutSyncState() throws IOException {
+        File file = new File(dir, "tickets.snapshot");
+        TicketSnapshot snapshot = new TicketSnapshot(new LinkedHashMap<>(), new HashMap<>(), 0, 0, 0, null);
+        snapshot.write(file);
+
+        TicketSnapshot read = TicketSnapshot.read(file);
+        assertSnapshotEquals(snapshot, read);
+        assertTrue(read.commentTerms.isEmpty());
+    }
+
+    @Test
+    void missingFile() throws IOException {
+        assertNull(TicketSnapshot.read(new File(dir, "missing.snapshot")));
+    }
+
+    @Test
+    void truncatedFileFails() throws IOException {
+        File file = new File(dir, "tickets.snapshot");
+        newSnapshot(new HashMap<>()).write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertThrows(IOException.class, () -> TicketSnapshot.read(file));
+    }
+
+    @Test
+    void corruptFileFails() throws IOException {
+        File file = new File(dir, "tickets.snapshot");
+        newSnapshot(new HashMap<>()).write(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // Flip a bit in the location of the last ticket
+        bytes[bytes.length - 30] ^= 1;
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> TicketSnapshot.read(file));
+    }
+
+    @Test
+    void readsVersion1() throws IOException {
+        File file = new File(dir, "tickets.snapshot");
+        TicketSnapshot snapshot = newSnapshot(new HashMap<>());
+        snapshot.write(file);
+
+        // Version 1 is version 2 without the comment term section, which is a zero count here.
+        // Drop it and replace the checksum.
+        byte[] v2 = Files.readAllBytes(file.toPath());
+        byte[] v1 = Arrays.copyOf(v2, v2.length - 4);
+        v1[4] = 1;
+        CRC32 crc = new CRC32();
+        crc.update(v1, 0, v1.length - 8);
+        long checksum = crc.getValue();
+        for (int i = 0; i < 8; i++) {
+            v1[v1.length - 1 - i] = (byte) (checksum >>> (8 * i));
+        }
+        Files.write(file.toPath(), v1);
+
+        TicketSnapshot read = TicketSnapshot.read(file);
+        assertSnapshotEquals(snapshot, read);
+        assertTrue(read.commentTerms.isEmpty());
+    }
+
+    @Test
+    void unknownVersionFails() throws IOException {
+        File file = new File(dir, "tickets.snapshot");
+        newSnapshot(new HashMap<>()).write(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[4] = 99;
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> TicketSnapshot.read(file));
+    }
+}